@@ -0,0 +1,49 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * Measures how fast GamePool steps a pool of a million games on the default well, applying a random
+ * input (other than drop) to every game and restarting the games that ended between rounds.
+ *
+ */
+public class GamePoolBenchmark {
+	
+	private static final Input[] INPUTS = Input.values();
+	private static final int kGames = 1000000;
+	private static final int kRounds = 10;
+	
+	/**
+	 * Runs the benchmark and prints the time of every round
+	 * @param args Not used
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(2);
+		GamePool pool = new GamePool(kGames, GameLogic.WIDTH, GameLogic.DEPTH, GameLogic.HEIGHT);
+		byte[] inputs = new byte[kGames];
+		for (int game = 0; game < kGames; game++) {
+			pool.newGame(game, random.nextLong());
+		}
+		
+		for (int round = 0; round < kRounds; round++) {
+			for (int game = 0; game < kGames; game++) {
+				int input = random.nextInt(16);
+				inputs[game] = (byte)(input < INPUTS.length && input != Input.Drop.ordinal() ? input : 0);
+			}
+			
+			long start = System.nanoTime();
+			pool.step(0, kGames, inputs);
+			long elapsed = System.nanoTime() - start;
+			
+			int over = 0;
+			for (int game = 0; game < kGames; game++) {
+				if (pool.isOver(game)) {
+					pool.newGame(game, random.nextLong());
+					over++;
+				}
+			}
+			System.out.printf("Stepped %d games in %.2f ms (%.1f ns per game), %d restarted%n", kGames,
+					elapsed/1e6, (double)elapsed/kGames, over);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package tetris;
+
+/**
+ * Compares scalar and vectorized LevelBits on boards with levels of 16x16, 32x32 and 64x64 cells.
+ * Measures scanning for full levels when there are none, the worst case in which every level is
+ * missing only its last cell, and removing every other level of a filled board. Run with
+ * --add-modules jdk.incubator.vector to include the vectorized implementation.
+ *
+ */
+public class LevelBitsBenchmark {
+	
+	private static final int[] kLevelSizes = {16, 32, 64};
+	private static final int kHeight = 512;
+	private static final int kWarmupRounds = 2000;
+	private static final int kRounds = 1000;
+	
+	/**
+	 * Runs the benchmark and prints nanoseconds per level of every case
+	 * @param args Not used
+	 */
+	public static void main(String[] args) {
+		LevelBits[] implementations = {LevelBits.create(false), LevelBits.create(true)};
+		if (implementations[1] instanceof LevelBits.Scalar) {
+			System.out.println("Vector API not available, start with --add-modules jdk.incubator.vector");
+		}
+		
+		for (int size : kLevelSizes) {
+			for (LevelBits levelBits : implementations) {
+				Board board = new Board(size, size, kHeight, levelBits);
+				
+				fill(board, false);
+				measureScan(board, kWarmupRounds);
+				double scan = measureScan(board, kRounds);
+				
+				measureRemoval(board, kWarmupRounds/10);
+				double removal = measureRemoval(board, kRounds/10);
+				
+				System.out.printf("%2dx%-2d %-16s scan %8.2f ns/level, removal %8.2f ns/level%n",
+						size, size, levelBits.getName(), scan, removal);
+			}
+		}
+	}
+	
+	private static double measureScan(Board board, int rounds)
+	{
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			if (board.reduceLevels() != 0) {
+				throw new IllegalStateException("No level should be full");
+			}
+		}
+		return (double)(System.nanoTime() - start) / rounds / kHeight;
+	}
+	
+	private static double measureRemoval(Board board, int rounds)
+	{
+		long total = 0;
+		for (int i = 0; i < rounds; i++) {
+			fill(board, true);
+			long start = System.nanoTime();
+			board.reduceLevels();
+			total += System.nanoTime() - start;
+		}
+		return (double)total / rounds / kHeight;
+	}
+	
+	private static void fill(Board board, boolean everyOtherFull)
+	{
+		Color[] colors = Color.values();
+		int width = board.getWidth();
+		int depth = board.getDepth();
+		for (int k = 0; k < kHeight; k++) {
+			boolean full = everyOtherFull && k % 2 == 0;
+			for (int i = 0; i < width; i++) {
+				for (int j = 0; j < depth; j++) {
+					boolean empty = !full && i == width - 1 && j == depth - 1;
+					board.setElementAtLocation(i, j, k, empty ? null : Element.withColor(colors[(i + j + k) % colors.length]));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package tetris;
+
+/**
+ * Computes auto-repeat of a held key from event timestamps rather than from frame or tick counts.
+ * First repeat happens after a delay (DAS), following ones every repeat interval (ARR).
+ *
+ */
+public class AutoRepeat {
+	
+	/**
+	 * Delay between key press and the first repeat, in nanoseconds
+	 */
+	public static final long DELAYED_AUTO_SHIFT = 170000000L;
+	
+	/**
+	 * Interval between consecutive repeats, in nanoseconds
+	 */
+	public static final long AUTO_REPEAT_RATE = 50000000L;
+	
+	// Upper bound of repeats reported by single update, e.g. after a long stall
+	private static final int kMaxRepeatsPerUpdate = 8;
+	
+	private Input heldInput = Input.None;
+	private long pressTime;
+	private long repeatCount;
+	
+	/**
+	 * Whether holding given input should repeat it
+	 * @param input Checked input
+	 * @return true for moves, false for rotations and drop
+	 */
+	public static boolean isRepeatable(Input input)
+	{
+		switch (input) {
+		case MoveLeft:
+		case MoveRight:
+		case MoveUp:
+		case MoveDown:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Notifies about pressed key. The most recently pressed repeatable input is the one being repeated.
+	 * @param input Pressed input
+	 * @param nanoTime Time of press
+	 */
+	public void press(Input input, long nanoTime)
+	{
+		if (!isRepeatable(input)) {
+			return;
+		}
+		heldInput = input;
+		pressTime = nanoTime;
+		repeatCount = 0;
+	}
+	
+	/**
+	 * Notifies about released key
+	 * @param input Released input
+	 */
+	public void release(Input input)
+	{
+		if (input == heldInput) {
+			heldInput = Input.None;
+		}
+	}
+	
+	/**
+	 * Stops repeating, e.g. when a new block appears
+	 */
+	public void reset()
+	{
+		heldInput = Input.None;
+	}
+	
+	/**
+	 * Getter for currently held repeatable input
+	 * @return Held input or Input.None
+	 */
+	public Input getHeldInput()
+	{
+		return heldInput;
+	}
+	
+	/**
+	 * Calculates how many repeats of held input are due since the last update
+	 * @param nanoTime Current time
+	 * @return Number of times held input should be applied now
+	 */
+	public int update(long nanoTime)
+	{
+		if (heldInput == Input.None) {
+			return 0;
+		}
+		
+		long heldFor = nanoTime - pressTime - DELAYED_AUTO_SHIFT;
+		if (heldFor < 0) {
+			return 0;
+		}
+		
+		long due = heldFor / AUTO_REPEAT_RATE + 1;
+		long repeats = Math.min(due - repeatCount, kMaxRepeatsPerUpdate);
+		repeatCount = due;
+		
+		return (int)Math.max(repeats, 0);
+	}
+}
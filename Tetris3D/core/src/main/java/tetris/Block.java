@@ -17,6 +17,14 @@ public class Block {
 	
 	private Element[][][] elements;
 	
+	private int shape = UNKNOWN_SHAPE;
+	private int orientation;
+	
+	/**
+	 * Shape of blocks not created by BlockFactory
+	 */
+	public static final int UNKNOWN_SHAPE = -1;
+	
 	/**
 	 * Default constructor, creates a Block from 3D array of Elements
 	 * @param elements
@@ -40,6 +48,19 @@ public class Block {
 		this.z = z;
 	}
 	
+	/**
+	 * Additional constructor, creates a Block of known shape and orientation
+	 * @param elements Elements of the block, rotated according to orientation
+	 * @param shape Shape id, as defined by BlockFactory
+	 * @param orientation One of Orientation.COUNT orientations of shape
+	 */
+	public Block(Element[][][] elements, int x, int y, int z, int shape, int orientation)
+	{
+		this(elements, x, y, z);
+		this.shape = shape;
+		this.orientation = orientation;
+	}
+	
 	/**
 	 * Creates a translated copy of block 
 	 * @param x "Width" coordinate of translation
@@ -49,12 +70,7 @@ public class Block {
 	 */
 	public Block translatedBlock(int x, int y, int z)
 	{
-		Block newBlock = new Block(elements.clone());
-		newBlock.x += this.x + x;
-		newBlock.y += this.y + y;
-		newBlock.z += this.z + z;
-		
-		return newBlock;
+		return new Block(elements.clone(), this.x + x, this.y + y, this.z + z, shape, orientation);
 	}
 	
 	/**
@@ -73,7 +89,7 @@ public class Block {
 			}
 		}
 		
-		return new Block(newElements, x, y, z);
+		return new Block(newElements, x, y, z, shape, Orientation.xRotated(orientation));
 	}
 	
 	/**
@@ -92,7 +108,7 @@ public class Block {
 			}
 		}
 		
-		return new Block(newElements, x, y, z);
+		return new Block(newElements, x, y, z, shape, Orientation.yRotated(orientation));
 	}
 	
 	/**
@@ -111,7 +127,7 @@ public class Block {
 			}
 		}
 		
-		return new Block(newElements, x, y, z);
+		return new Block(newElements, x, y, z, shape, Orientation.zRotated(orientation));
 	}
 	
 	/**
@@ -160,6 +176,39 @@ public class Block {
 	public int getZ() {
 		return z;
 	}
+	
+	/**
+	 * Color of block's elements, blocks created by BlockFactory have all the elements of one color
+	 * @return color of the first element or null if block is empty
+	 */
+	public Color getColor() {
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				for (int k = 0; k < size; k++) {
+					if (elements[i][j][k] != null) {
+						return elements[i][j][k].getColor();
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Getter for shape id
+	 * @return shape id from BlockFactory or UNKNOWN_SHAPE
+	 */
+	public int getShape() {
+		return shape;
+	}
+	
+	/**
+	 * Getter for orientation of block's shape
+	 * @return one of Orientation.COUNT orientations
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
 
 
 
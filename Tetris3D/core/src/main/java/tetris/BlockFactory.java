@@ -0,0 +1,325 @@
+package tetris;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * BlockFactory provides a mean to create random Blocks. The built-in shapes are replaced by those
+ * of a PieceSet file when the JVM is started with -Dtetris.pieces=path, all the shapes must then
+ * fit into the well at the spawn position, which checkWell() verifies.
+ *
+ */
+public final class BlockFactory {
+
+	/**
+	 * Largest number of shapes, so that shape ids fit into an unsigned short
+	 */
+	public static final int MAX_SHAPE_COUNT = 1 << 16;
+
+	/**
+	 * Creates a block with random shape and color at given position
+	 * @param random Generator deciding block's shape and color
+	 * @param x "Width" coordinate
+	 * @param y "Depth" coordinate
+	 * @param z "Height" coordinate
+	 * @return Created block
+	 */
+	public static Block randomBlockAtPosition(SeededRandom random, int x, int y, int z)
+	{
+		int shape = random.nextInt(orientedBlocks.length);
+		//int shape = 0;
+		Color color = COLORS[random.nextInt(COLORS.length)];
+		
+		return blockWithShape(shape, 0, color, x, y, z);
+	}
+	
+	/**
+	 * Creates a block of given shape, orientation and color at given position
+	 * @param shape Shape id, less than shapeCount()
+	 * @param orientation One of Orientation.COUNT orientations
+	 * @param color Color of all the block's elements
+	 * @param x "Width" coordinate
+	 * @param y "Depth" coordinate
+	 * @param z "Height" coordinate
+	 * @return Created block
+	 */
+	public static Block blockWithShape(int shape, int orientation, Color color, int x, int y, int z)
+	{
+		char[][][] template = orientedBlocks[shape][orientation];
+		Element element = Element.withColor(color);
+		
+		Element[][][] elements = new Element[template.length][template.length][template.length];
+		
+		for (int i = 0; i < template.length; i++) {
+			for (int j = 0; j < template.length; j++) {
+				for (int k = 0; k < template.length; k++) {
+					if (template[i][j][k] == 0) continue;
+					
+					elements[i][j][k] = element;
+				}
+			}
+		}
+		
+		return new Block(elements, x, y, z, shape, orientation);
+	}
+	
+	/**
+	 * Number of distinct block shapes
+	 * @return shape count
+	 */
+	public static int shapeCount()
+	{
+		return orientedBlocks.length;
+	}
+	
+	/**
+	 * Size of the cube holding the biggest shape
+	 * @return shape size
+	 */
+	public static int maxShapeSize()
+	{
+		return maxShapeSize;
+	}
+	
+	/**
+	 * Fingerprint of the shapes in use: their number and the cells of every shape in every orientation.
+	 * Formats storing shape ids or games record it, since they can be read only with the same shapes.
+	 * @return hash of the shapes
+	 */
+	public static long piecesFingerprint()
+	{
+		return piecesFingerprint;
+	}
+	
+	/**
+	 * Checks that every shape fits into a well when spawned at a third of its width and depth,
+	 * as GameLogic spawns them
+	 * @param width Well's width
+	 * @param depth Well's depth
+	 * @throws IllegalArgumentException if the biggest shape doesn't fit
+	 */
+	public static void checkWell(int width, int depth)
+	{
+		if (width/3 + maxShapeSize > width || depth/3 + maxShapeSize > depth) {
+			throw new IllegalArgumentException("Shapes of size " + maxShapeSize + " don't fit into well of "
+					+ width + "x" + depth);
+		}
+	}
+	
+	private static final String kPiecesProperty = "tetris.pieces";
+	private static final Color[] COLORS = Color.values();
+	
+	private static char blocks[][][][] = {
+		{ // cube shape
+			{
+				{1,},
+			},
+		},
+		{ // T shape
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			},
+			{
+				{0, 1, 0},
+				{1, 1, 1},
+				{0, 0, 0}
+			},
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			}
+		}, 
+		{ // Z Shape
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			},
+			{
+				{0, 1, 0},
+				{1, 1, 0},
+				{1, 0, 0}
+			},
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			}
+		},
+		{ // I Shape
+			{
+				{0, 0, 0},
+				{0, 1, 0},
+				{0, 0, 0}
+			},
+			{
+				{0, 0, 0},
+				{0, 1, 0},
+				{0, 0, 0}
+			},
+			{
+				{0, 0, 0},
+				{0, 1, 0},
+				{0, 0, 0}
+			}
+		},
+		{ // L shape
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			},
+			{
+				{0, 1, 0},
+				{0, 1, 0},
+				{0, 1, 1}
+			},
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0}
+			}
+		},
+		{ 
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0},
+			},
+			{
+				{1, 1, 0},
+				{0, 1, 0},
+				{0, 1, 1},
+			},
+			{
+				{0, 0, 0},
+				{0, 0, 0},
+				{0, 0, 0},
+			}
+		},
+		{
+			{
+				{0, 1},
+				{1, 1},
+			},
+			{
+				{0, 0},
+				{0, 1},
+			},
+		},
+		
+		{ // fancy shape
+			{
+				{0, 1, 0},
+				{0, 0, 0},
+				{0, 0, 0},
+			},
+			{
+				{0, 1, 0},
+				{0, 1, 0},
+				{0, 0, 0},
+			},
+			{
+				{0, 0, 0},
+				{1, 1, 0},
+				{0, 0, 0},
+			}
+		}
+	};
+	
+	// every shape precomputed in each orientation, [shape][orientation][x][y][z]
+	private static final char[][][][][] orientedBlocks;
+	private static final int maxShapeSize;
+	private static final long piecesFingerprint;
+	
+	static {
+		String piecesPath = System.getProperty(kPiecesProperty);
+		if (piecesPath != null) {
+			orientedBlocks = loadPieces(piecesPath);
+		} else {
+			orientedBlocks = orientBlocks();
+		}
+		
+		int size = 0;
+		for (char[][][][] shape : orientedBlocks) {
+			size = Math.max(size, shape[0].length);
+		}
+		maxShapeSize = size;
+		piecesFingerprint = fingerprint(orientedBlocks);
+	}
+	
+	private static long fingerprint(char[][][][][] oriented)
+	{
+		long hash = Board.mix(oriented.length);
+		for (char[][][][] shape : oriented) {
+			for (char[][][] template : shape) {
+				hash = Board.mix(hash ^ template.length);
+				for (int i = 0; i < template.length; i++) {
+					for (int j = 0; j < template.length; j++) {
+						for (int k = 0; k < template.length; k++) {
+							if (template[i][j][k] != 0) {
+								hash = Board.mix(hash + (i << 16 | j << 8 | k));
+							}
+						}
+					}
+				}
+			}
+		}
+		return hash;
+	}
+	
+	private static char[][][][][] loadPieces(String path)
+	{
+		PieceSet pieces;
+		try {
+			pieces = PieceSet.read(Paths.get(path));
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't load piece set " + path, e);
+		}
+		if (pieces.getShapeCount() > MAX_SHAPE_COUNT) {
+			throw new IllegalStateException("Piece set " + path + " has more than " + MAX_SHAPE_COUNT + " shapes");
+		}
+		
+		// orientations are precomputed by the file
+		char[][][][][] oriented = new char[pieces.getShapeCount()][Orientation.COUNT][][][];
+		for (int shape = 0; shape < oriented.length; shape++) {
+			for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+				oriented[shape][orientation] = pieces.template(shape, orientation);
+			}
+		}
+		return oriented;
+	}
+	
+	private static char[][][][][] orientBlocks()
+	{
+		char[][][][][] templates = new char[blocks.length][Orientation.COUNT][][][];
+		int[] location = new int[3];
+		
+		for (int shape = 0; shape < blocks.length; shape++) {
+			char[][][] template = blocks[shape];
+			int size = template.length;
+			
+			for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+				char[][][] oriented = new char[size][size][size];
+				for (int i = 0; i < size; i++) {
+					assert(template[i].length == size); // shape should be square
+					for (int j = 0; j < size; j++) {
+						assert(template[i][j].length == size); // shape should be square
+						for (int k = 0; k < size; k++) {
+							location[0] = i;
+							location[1] = j;
+							location[2] = k;
+							Orientation.rotate(orientation, size, location);
+							oriented[location[0]][location[1]][location[2]] = template[i][j][k];
+						}
+					}
+				}
+				templates[shape][orientation] = oriented;
+			}
+		}
+		return templates;
+	}
+}
@@ -0,0 +1,517 @@
+package tetris;
+
+import java.util.Arrays;
+
+import jdk.jfr.EventType;
+
+import tetris.metrics.LevelsReducedEvent;
+
+/**
+ * Represents a 3D Tetris board, i.e. well with width, depth and height
+ *
+ * Levels are stored in chunks of kChunkLevels, allocated when the first element is placed in them, so
+ * that the empty upper part of a tall well takes no memory. A chunk holds a color per cell and
+ * an occupancy bitset per level, used by collision checks and to find full levels many cells at a time
+ * (see LevelBits).
+ * Levels at and above topLevel are known to be empty and are never scanned.
+ *
+ */
+public class Board {
+	
+	private static final int kChunkShift = 4;
+	private static final int kChunkLevels = 1 << kChunkShift;
+	private static final Color[] COLORS = Color.values();
+	private static final EventType kLevelsReducedEventType = EventType.getEventType(LevelsReducedEvent.class);
+
+	private int width;
+	private int depth;
+	private int height;
+	
+	// cells of levels in chunk, level after level, 0 if empty or color's ordinal + 1
+	private byte[][] chunkCells;
+	// occupancy of levels in chunk, wordsPerLevel words per level, bit y*width + x
+	private long[][] chunkBits;
+	private final int wordsPerLevel;
+	private final long[] fullLevel;
+	private final LevelBits levelBits;
+	private int topLevel;
+	private int elementCount;
+	
+	// Zobrist style hash: elements of a level are hashed by position and color, levels by their height
+	private long[] levelHashes;
+	private long hash;
+	
+	private BoardListener listener;
+	private final BoardChanges changes = new BoardChanges();
+	
+	/**
+	 * Designated constructor
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 */
+	public Board(int width, int depth, int height)
+	{
+		this(width, depth, height, LevelBits.forLevel((width*depth + 63) >>> 6));
+	}
+	
+	/**
+	 * Creates board with given implementation of level operations
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 * @param levelBits Operations on occupancy bitsets of levels
+	 */
+	Board(int width, int depth, int height, LevelBits levelBits)
+	{
+		this.levelBits = levelBits;
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+		this.levelHashes = new long[height];
+		
+		int chunkCount = (height + kChunkLevels - 1) >> kChunkShift;
+		chunkCells = new byte[chunkCount][];
+		chunkBits = new long[chunkCount][];
+		
+		int cellsPerLevel = width*depth;
+		wordsPerLevel = (cellsPerLevel + 63) >>> 6;
+		fullLevel = new long[wordsPerLevel];
+		for (int i = 0; i < cellsPerLevel; i++) {
+			fullLevel[i >>> 6] |= 1L << i;
+		}
+	}
+	
+	/**
+	 * Checks whether a given arbitrarily positioned block can be placed legally on the board
+	 * @param block Checked block
+	 * @return If true then block can be placed legally, false otherwise.
+	 */
+	public boolean canBlockBePlacedLegally(Block block)
+	{		
+		for (int i = 0; i < block.getSize(); i++) {
+			for (int j = 0; j < block.getSize(); j++) {
+				for (int k = 0; k < block.getSize(); k++) {
+					if (block.elementAtLocation(i, j, k) == null) {
+						continue;
+					}
+					int x = i + block.getX();
+					int y = j + block.getY();
+					int z = k + block.getZ();
+										
+					if (x < 0 || x >= width || y < 0 || y >= depth || z < 0)
+						return false; // out of range
+					
+					if (z >= height)
+						continue;
+					
+					if (isOccupied(x, y, z))
+						return false; // already taken
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks whether given block is in contact with any of board's elements, i.e.
+	 * If bottom face of any of block's elements touched top face of any of board's elements
+	 * @param block Checked block
+	 * @return Check result.
+	 */
+	public boolean isBlockInContact(Block block)
+	{				
+		for (int i = 0; i < block.getSize(); i++) {
+			for (int j = 0; j < block.getSize(); j++) {
+						
+				int x = i + block.getX();
+				int y = j + block.getY();
+				
+				for (int k = 0; k < block.getSize(); k++) {
+					if (block.elementAtLocation(i, j, k) != null) {
+						int z = k + block.getZ();
+						
+						assert(z >= 0);
+						
+						if (z == 0) {
+							return true; // block is touching ground
+						}
+						
+						if (z <= height && isOccupied(x, y, z - 1)) {
+							return true; // there is a piece underneath checked block
+						}
+					}
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Adds given block to board, incorporating its elements into boards own.
+	 * @param block Added block
+	 * @return If return value is true then the board has overflowed
+	 */
+	public Boolean addBlock(Block block)
+	{
+		changes.begin(BoardChanges.Kind.CellsSet);
+		boolean result = addElements(block);
+		
+		if (listener != null && changes.getCellCount() > 0) {
+			listener.boardChanged(this, changes);
+		}
+		return result;
+	}
+	
+	private boolean addElements(Block block)
+	{
+		for (int i = 0; i < block.getSize(); i++) {
+			for (int j = 0; j < block.getSize(); j++) {
+				for (int k = 0; k < block.getSize(); k++) {
+					Element element;
+					if ((element = block.elementAtLocation(i, j, k)) == null) {
+						continue;
+					}
+					int x = i + block.getX();
+					int y = j + block.getY();
+					int z = k + block.getZ();
+					
+					assert(x >= 0 && x < width && y >= 0 && y < depth);
+					
+					if (z >= height) {
+						return false; // added block is over the top edge
+					}
+					
+					assert(!isOccupied(x, y, z));
+					
+					setCell(x, y, z, element);
+					elementCount++;
+					toggleHash(x, y, z, element);
+					changes.addCell(x, y, z, element.getColor());
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks if any of boards levels is filled completely and removes them, counting the total
+	 * number of reduced levels.
+	 * @return Number of reduced levels (can be more than 1)
+	 */
+	public int reduceLevels()
+	{
+		LevelsReducedEvent event = null;
+		if (kLevelsReducedEventType.isEnabled()) {
+			event = new LevelsReducedEvent();
+			event.begin();
+		}
+		
+		changes.begin(BoardChanges.Kind.LevelsRemoved);
+		int reducedLevels = 0;
+
+		for (int z = 0; z < topLevel; z++) {
+			if (isLevelFull(z)) {
+				changes.addRemovedLevel(z);
+				reducedLevels++;
+				continue;
+			}
+			
+			if (reducedLevels > 0) {
+				moveLevel(z, z - reducedLevels); // levels above removed ones fall in place
+				levelHashes[z - reducedLevels] = levelHashes[z];
+			}
+		}
+		
+		if (reducedLevels > 0) {
+			for (int z = topLevel - reducedLevels; z < topLevel; z++) {
+				clearLevel(z);
+				levelHashes[z] = 0;
+			}
+		
+			// only the levels' positions changed, their hashes are combined again
+			hash = 0;
+			for (int z = 0; z < topLevel; z++) {
+				hash ^= levelHash(z);
+			}
+			
+			topLevel -= reducedLevels;
+			elementCount -= reducedLevels*width*depth;
+			releaseChunksAbove(topLevel);
+		}
+		
+		if (event != null) {
+			event.levels = reducedLevels;
+			event.commit();
+		}
+		
+		if (listener != null && reducedLevels > 0) {
+			listener.boardChanged(this, changes);
+		}
+
+		return reducedLevels;
+	}
+	
+	private boolean isLevelFull(int z)
+	{
+		long[] bits = chunkBits[z >> kChunkShift];
+		if (bits == null) {
+			return false;
+		}
+		
+		return levelBits.isFull(bits, (z & (kChunkLevels - 1))*wordsPerLevel, fullLevel, wordsPerLevel);
+	}
+	
+	private void moveLevel(int from, int to)
+	{
+		byte[] cells = chunkCells[from >> kChunkShift];
+		if (cells == null) {
+			clearLevel(to);
+			return;
+		}
+		
+		int cellsPerLevel = width*depth;
+		ensureChunk(to);
+		System.arraycopy(cells, (from & (kChunkLevels - 1))*cellsPerLevel,
+				chunkCells[to >> kChunkShift], (to & (kChunkLevels - 1))*cellsPerLevel, cellsPerLevel);
+		System.arraycopy(chunkBits[from >> kChunkShift], (from & (kChunkLevels - 1))*wordsPerLevel,
+				chunkBits[to >> kChunkShift], (to & (kChunkLevels - 1))*wordsPerLevel, wordsPerLevel);
+	}
+	
+	private void clearLevel(int z)
+	{
+		byte[] cells = chunkCells[z >> kChunkShift];
+		if (cells == null) {
+			return;
+		}
+		
+		int cellsPerLevel = width*depth;
+		int level = z & (kChunkLevels - 1);
+		Arrays.fill(cells, level*cellsPerLevel, (level + 1)*cellsPerLevel, (byte)0);
+		Arrays.fill(chunkBits[z >> kChunkShift], level*wordsPerLevel, (level + 1)*wordsPerLevel, 0);
+	}
+	
+	private void releaseChunksAbove(int z)
+	{
+		for (int chunk = (z + kChunkLevels - 1) >> kChunkShift; chunk < chunkCells.length; chunk++) {
+			chunkCells[chunk] = null;
+			chunkBits[chunk] = null;
+		}
+	}
+	
+	private void ensureChunk(int z)
+	{
+		int chunk = z >> kChunkShift;
+		if (chunkCells[chunk] == null) {
+			chunkCells[chunk] = new byte[kChunkLevels*width*depth];
+			chunkBits[chunk] = new long[kChunkLevels*wordsPerLevel];
+		}
+	}
+	
+	private boolean isOccupied(int x, int y, int z)
+	{
+		long[] bits = chunkBits[z >> kChunkShift];
+		if (bits == null) {
+			return false;
+		}
+		int bit = y*width + x;
+		return (bits[(z & (kChunkLevels - 1))*wordsPerLevel + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+	
+	private void setCell(int x, int y, int z, Element element)
+	{
+		ensureChunk(z);
+		int level = z & (kChunkLevels - 1);
+		int bit = y*width + x;
+		long[] bits = chunkBits[z >> kChunkShift];
+		
+		if (element == null) {
+			chunkCells[z >> kChunkShift][level*width*depth + bit] = 0;
+			bits[level*wordsPerLevel + (bit >>> 6)] &= ~(1L << bit);
+		} else {
+			chunkCells[z >> kChunkShift][level*width*depth + bit] = (byte)(element.getColor().ordinal() + 1);
+			bits[level*wordsPerLevel + (bit >>> 6)] |= 1L << bit;
+			topLevel = Math.max(topLevel, z + 1);
+		}
+	}
+	
+	/**
+	 * Returns the element placed at given position
+	 * @param i Index among "width" axis
+	 * @param j Index among "depth" axis
+	 * @param k Index among "height" axis
+	 * @return Element at position, elements are shared instances returned by Element.withColor()
+	 */
+	public Element elementAtLocation(int i, int j, int k)
+	{
+		byte[] cells = chunkCells[k >> kChunkShift];
+		if (cells == null) {
+			return null;
+		}
+		int cell = cells[(k & (kChunkLevels - 1))*width*depth + j*width + i];
+		return cell == 0 ? null : Element.withColor(COLORS[cell - 1]);
+	}
+	
+	/**
+	 * Copies colors of a whole level, in the order of increasing "depth", then "width" index
+	 * @param k Index among "height" axis
+	 * @param destination Array receiving width*depth cells, 0 for empty one or color's ordinal + 1
+	 * @param offset Position of the level in destination
+	 */
+	public void copyLevel(int k, byte[] destination, int offset)
+	{
+		byte[] cells = chunkCells[k >> kChunkShift];
+		int cellsPerLevel = width*depth;
+		if (cells == null) {
+			Arrays.fill(destination, offset, offset + cellsPerLevel, (byte)0);
+		} else {
+			System.arraycopy(cells, (k & (kChunkLevels - 1))*cellsPerLevel, destination, offset, cellsPerLevel);
+		}
+	}
+	
+	/**
+	 * Copies occupancy of a whole level as a bitset, bit y*width + x of the level is set if the
+	 * element at (x, y) is occupied
+	 * @param k Index among "height" axis
+	 * @param destination Array receiving getWordsPerLevel() words
+	 * @param offset Position of the level in destination
+	 */
+	public void copyLevelBits(int k, long[] destination, int offset)
+	{
+		long[] bits = chunkBits[k >> kChunkShift];
+		if (bits == null) {
+			Arrays.fill(destination, offset, offset + wordsPerLevel, 0);
+		} else {
+			System.arraycopy(bits, (k & (kChunkLevels - 1))*wordsPerLevel, destination, offset, wordsPerLevel);
+		}
+	}
+	
+	/**
+	 * Number of 64 bit words holding occupancy of a single level
+	 * @return words per level, as copied by copyLevelBits()
+	 */
+	public int getWordsPerLevel() {
+		return wordsPerLevel;
+	}
+	
+	/**
+	 * Bound of the occupied part of the board: levels at and above it are empty
+	 * @return Number of levels from the bottom that may hold elements
+	 */
+	public int getTopLevel() {
+		return topLevel;
+	}
+
+	/**
+	 * Places element at given position, replacing whatever was there. Used to restore saved boards.
+	 * @param i Index among "width" axis
+	 * @param j Index among "depth" axis
+	 * @param k Index among "height" axis
+	 * @param element Placed element or null to empty the position
+	 */
+	public void setElementAtLocation(int i, int j, int k, Element element)
+	{
+		Element previous = elementAtLocation(i, j, k);
+		if (previous == null && element == null) {
+			return; // keeps chunks of empty levels unallocated
+		}
+		if (previous != null) {
+			elementCount--;
+			toggleHash(i, j, k, previous);
+		}
+		if (element != null) {
+			elementCount++;
+			toggleHash(i, j, k, element);
+		}
+		setCell(i, j, k, element);
+	}
+	
+	/**
+	 * Sets listener notified about changes of the board made by addBlock() and reduceLevels().
+	 * Changes made by setElementAtLocation() are not published, whoever makes them should
+	 * publish a reset with notifyReset() when done.
+	 * @param listener Listener or null
+	 */
+	public void setListener(BoardListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Notifies listener that the whole board has changed
+	 */
+	public void notifyReset() {
+		if (listener != null) {
+			changes.begin(BoardChanges.Kind.Reset);
+			listener.boardChanged(this, changes);
+		}
+	}
+	
+	/**
+	 * Hash of the positions and colors of all the elements, maintained as they are added and removed.
+	 * Equal boards have equal hashes regardless of how they were reached.
+	 * @return hash of board
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * Scrambles bits of a value, used to build hashes of the game state
+	 * @param value Scrambled value
+	 * @return Well distributed 64 bit value, 0 only for 0
+	 */
+	static long mix(long value)
+	{
+		// finalizer of SplitMix64
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+	
+	private void toggleHash(int x, int y, int z, Element element)
+	{
+		hash ^= levelHash(z);
+		levelHashes[z] ^= mix(((long)x << 40 | (long)y << 20 | element.getColor().ordinal()) + 0x9E3779B97F4A7C15L);
+		hash ^= levelHash(z);
+	}
+	
+	private long levelHash(int z)
+	{
+		return levelHashes[z] == 0 ? 0 : mix(levelHashes[z] + z*0x9E3779B97F4A7C15L);
+	}
+	
+	/**
+	 * Number of occupied cells of the board
+	 * @return number of elements on board
+	 */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * Getter for board's width
+	 * @return board's width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for board's depth
+	 * @return board's depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Getter for board's height
+	 * @return board's height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+}
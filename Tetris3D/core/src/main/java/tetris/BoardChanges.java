@@ -0,0 +1,148 @@
+package tetris;
+
+/**
+ * Describes a single change of a Board: either elements were set by an added block, or full levels
+ * were removed and the levels above them shifted down, or the whole board was replaced (reset).
+ * A Board reuses one instance for all of its changes, so publishing them doesn't allocate.
+ *
+ */
+public final class BoardChanges {
+	
+	/**
+	 * Kinds of changes
+	 */
+	public enum Kind {
+		/** Elements were set, see getCellCount() */
+		CellsSet,
+		/** Full levels were removed, see getRemovedLevelCount() */
+		LevelsRemoved,
+		/** The board was replaced or restored, consumers have to read all of it */
+		Reset
+	}
+	
+	private static final Color[] COLORS = Color.values();
+	
+	private Kind kind;
+	
+	// cells as x, y, z, color ordinal quadruples
+	private int[] cells = new int[4*16];
+	private int cellCount;
+	
+	private int[] removedLevels = new int[4];
+	private int removedLevelCount;
+	
+	void begin(Kind kind)
+	{
+		this.kind = kind;
+		cellCount = 0;
+		removedLevelCount = 0;
+	}
+	
+	void addCell(int x, int y, int z, Color color)
+	{
+		if (4*cellCount == cells.length) {
+			int[] grown = new int[cells.length*2];
+			System.arraycopy(cells, 0, grown, 0, cells.length);
+			cells = grown;
+		}
+		
+		int offset = 4*cellCount++;
+		cells[offset] = x;
+		cells[offset + 1] = y;
+		cells[offset + 2] = z;
+		cells[offset + 3] = color.ordinal();
+	}
+	
+	void addRemovedLevel(int z)
+	{
+		if (removedLevelCount == removedLevels.length) {
+			int[] grown = new int[removedLevels.length*2];
+			System.arraycopy(removedLevels, 0, grown, 0, removedLevels.length);
+			removedLevels = grown;
+		}
+		removedLevels[removedLevelCount++] = z;
+	}
+	
+	/**
+	 * Kind of the change
+	 * @return kind
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
+	/**
+	 * Number of elements set by the change
+	 * @return cell count
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+	
+	/**
+	 * "Width" coordinate of a set element
+	 * @param index Index of element, less than getCellCount()
+	 * @return x coordinate
+	 */
+	public int getCellX(int index) {
+		return cells[4*index];
+	}
+	
+	/**
+	 * "Depth" coordinate of a set element
+	 * @param index Index of element, less than getCellCount()
+	 * @return y coordinate
+	 */
+	public int getCellY(int index) {
+		return cells[4*index + 1];
+	}
+	
+	/**
+	 * "Height" coordinate of a set element
+	 * @param index Index of element, less than getCellCount()
+	 * @return z coordinate
+	 */
+	public int getCellZ(int index) {
+		return cells[4*index + 2];
+	}
+	
+	/**
+	 * Color of a set element
+	 * @param index Index of element, less than getCellCount()
+	 * @return color
+	 */
+	public Color getCellColor(int index) {
+		return COLORS[cells[4*index + 3]];
+	}
+	
+	/**
+	 * Number of levels removed by the change. Levels above a removed one move down by one level for
+	 * every removed level below them.
+	 * @return removed level count
+	 */
+	public int getRemovedLevelCount() {
+		return removedLevelCount;
+	}
+	
+	/**
+	 * Height of a removed level, as it was before the change. Levels are in ascending order.
+	 * @param index Index of level, less than getRemovedLevelCount()
+	 * @return z coordinate of removed level
+	 */
+	public int getRemovedLevel(int index) {
+		return removedLevels[index];
+	}
+	
+	/**
+	 * Number of levels the level at given height (before the change) moved down by
+	 * @param z Height of a level that wasn't removed
+	 * @return shift of the level
+	 */
+	public int getShift(int z) {
+		int shift = 0;
+		while (shift < removedLevelCount && removedLevels[shift] < z) {
+			shift++;
+		}
+		return shift;
+	}
+}
@@ -0,0 +1,17 @@
+package tetris;
+
+/**
+ * Receives changes of a Board as they happen, so that consumers can update their own copy of it
+ * in time proportional to the change instead of the board's volume. Called on the thread running
+ * the game logic.
+ *
+ */
+public interface BoardListener {
+	
+	/**
+	 * Called after every change of the board
+	 * @param board Changed board
+	 * @param changes Description of the change, valid only during the call
+	 */
+	void boardChanged(Board board, BoardChanges changes);
+}
@@ -0,0 +1,45 @@
+package tetris;
+
+/**
+ * A single smallest atomic piece of tetris' logic. Both board and blocks consist of elements
+ *
+ */
+public class Element {
+	
+	private static final Element[] SHARED = new Element[Color.values().length];
+	static {
+		for (Color color : Color.values()) {
+			SHARED[color.ordinal()] = new Element(color);
+		}
+	}
+	
+	private Color color;
+	
+	/**
+	 * Returns a shared Element of given Color. Elements are immutable, so they can be shared
+	 * by any number of boards and blocks.
+	 * @param color Element's desired Color
+	 * @return Shared element
+	 */
+	public static Element withColor(Color color)
+	{
+		return SHARED[color.ordinal()];
+	}
+	
+	/**
+	 * Creates Element with a given Color
+	 * @param color Element's desired Color
+	 */
+	public Element(Color color)
+	{
+		this.color = color;
+	}
+
+	/**
+	 * Getter for element's color
+	 * @return element's color
+	 */
+	public Color getColor() {
+		return color;
+	}
+}
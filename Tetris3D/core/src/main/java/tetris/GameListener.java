@@ -0,0 +1,35 @@
+package tetris;
+
+/**
+ * Receives notifications about the course of a game from GameLogic. All the methods are called
+ * on the thread running the logic.
+ *
+ */
+public interface GameListener {
+	
+	/**
+	 * Called when a new game starts
+	 * @param seed Seed of the game's random generator
+	 */
+	void gameStarted(long seed);
+	
+	/**
+	 * Called at the beginning of every tick, before any input is applied
+	 * @param tick Number of the tick, counted from game's start
+	 */
+	void tickStarted(long tick);
+	
+	/**
+	 * Called for every input applied to the game, including auto-repeated ones
+	 * @param tick Number of the tick during which the input is applied, counted from game's start
+	 * @param input Applied input
+	 */
+	void inputApplied(long tick, Input input);
+	
+	/**
+	 * Called when the game is over
+	 * @param ticks Number of ticks the game lasted
+	 * @param score Final score
+	 */
+	void gameEnded(long ticks, int score);
+}
@@ -0,0 +1,544 @@
+package tetris;
+
+import jdk.jfr.EventType;
+
+import tetris.metrics.BlockSpawnEvent;
+import tetris.metrics.TickEvent;
+
+/**
+ * GameLogic is responsible for the process of the game. It handles user input,
+ * moves block down periodically, counts points and checks for fail conditions.
+ *
+ */
+public class GameLogic {
+
+	/**
+	 * Default dimensions of the well
+	 */
+	public static final int WIDTH = 5;
+	public static final int DEPTH = 5;
+	public static final int HEIGHT = 10;
+	
+	/**
+	 * Largest supported dimensions of the well
+	 */
+	public static final int MAX_WIDTH = 64;
+	public static final int MAX_DEPTH = 64;
+	public static final int MAX_HEIGHT = 512;
+	
+	static final int POINTS_PER_ROW = 10;
+	static final int kSmallTicksPerDrop = 120;
+	private static final int kInputQueueCapacity = 256;
+	private static final EventType kTickEventType = EventType.getEventType(TickEvent.class);
+	private static final EventType kBlockSpawnEventType = EventType.getEventType(BlockSpawnEvent.class);
+	
+	private final int width;
+	private final int depth;
+	private final int height;
+	
+	private boolean isOver;
+	private Board board;
+	private Block block;
+	private int score;
+	private int smallTickCount;
+	private int blockCount;
+	private int reducedLevelCount;
+	private long tickCount;
+		
+	private long seed;
+	private final SeededRandom random = new SeededRandom(0);
+	private GameListener listener;
+	private BoardListener boardListener;
+	private LockListener lockListener;
+	
+	// Timestamps of the latest applied input event: when it arrived and when it was applied
+	private long tickTime;
+	private long lastInputTime;
+	private long lastInputApplyTime;
+	
+	private final InputQueue inputQueue;
+	private final AutoRepeat autoRepeat = new AutoRepeat();
+	private final InputQueue.Handler inputHandler = new InputQueue.Handler() {
+		@Override
+		public void inputEvent(Input input, boolean pressed, long nanoTime) {
+			if (pressed) {
+				handleInput(input);
+				lastInputTime = nanoTime;
+				lastInputApplyTime = tickTime;
+				autoRepeat.press(input, nanoTime);
+			} else {
+				autoRepeat.release(input);
+			}
+		}
+	};
+	
+	/**
+	 * Default constructor
+	 */
+	public GameLogic()
+	{
+		this(WIDTH, DEPTH, HEIGHT, kInputQueueCapacity);
+	}
+	
+	/**
+	 * Creates logic with a well of default dimensions
+	 * @param inputQueueCapacity Maximum number of pending input events, must be a power of two
+	 */
+	public GameLogic(int inputQueueCapacity)
+	{
+		this(WIDTH, DEPTH, HEIGHT, inputQueueCapacity);
+	}
+	
+	/**
+	 * Creates logic with a well of given dimensions
+	 * @param width Well's width, up to MAX_WIDTH
+	 * @param depth Well's depth, up to MAX_DEPTH
+	 * @param height Well's height, up to MAX_HEIGHT
+	 */
+	public GameLogic(int width, int depth, int height)
+	{
+		this(width, depth, height, kInputQueueCapacity);
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param width Well's width, up to MAX_WIDTH
+	 * @param depth Well's depth, up to MAX_DEPTH
+	 * @param height Well's height, up to MAX_HEIGHT
+	 * @param inputQueueCapacity Maximum number of pending input events, must be a power of two
+	 */
+	public GameLogic(int width, int depth, int height, int inputQueueCapacity)
+	{
+		// blocks are spawned at a third of the well, the pieces in use must fit in it
+		if (width < 4 || width > MAX_WIDTH || depth < 4 || depth > MAX_DEPTH || height < 4 || height > MAX_HEIGHT) {
+			throw new IllegalArgumentException("Unsupported well dimensions " + width + "x" + depth + "x" + height);
+		}
+		BlockFactory.checkWell(width, depth);
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+		
+		inputQueue = new InputQueue(inputQueueCapacity);
+		newGame();
+	}
+	
+	/**
+	 * Starts new game with a random seed
+	 */
+	public void newGame()
+	{
+		newGame(System.nanoTime() ^ System.currentTimeMillis());
+	}
+	
+	/**
+	 * Starts new game. Games with equal seeds given equal inputs at equal ticks play out identically.
+	 * @param seed Seed of random generator deciding the sequence of blocks
+	 */
+	public void newGame(long seed)
+	{
+		this.seed = seed;
+		random.setSeed(seed);
+		
+		board = new Board(width, depth, height);
+		board.setListener(boardListener);
+		board.notifyReset();
+		score = 0;
+		reducedLevelCount = 0;
+		smallTickCount = 0;
+		tickCount = 0;
+		isOver = false;
+		inputQueue.clear();
+		autoRepeat.reset();
+		createNewBlock();
+		
+		if (listener != null) {
+			listener.gameStarted(seed);
+		}
+	}
+
+
+	/**
+	 * Performs one "tick" of game's logic, handling all the input events queued since previous one
+	 * @param nanoTime Current time as returned by System.nanoTime(), used to auto-repeat held keys
+	 */
+	public void tick(long nanoTime)
+	{
+		// events are created only while Flight Recorder records them, ticks don't allocate otherwise
+		TickEvent event = null;
+		if (kTickEventType.isEnabled()) {
+			event = new TickEvent();
+			event.begin();
+		}
+		
+		tickLogic(nanoTime);
+		
+		if (event != null) {
+			event.score = score;
+			event.commit();
+		}
+	}
+	
+	private void tickLogic(long nanoTime)
+	{
+		if (isOver) {
+			return;
+		}
+		
+		tickTime = nanoTime;
+		if (listener != null) {
+			listener.tickStarted(tickCount);
+		}
+		inputQueue.drain(inputHandler);
+		
+		for (int repeats = autoRepeat.update(nanoTime); repeats > 0; repeats--) {
+			handleInput(autoRepeat.getHeldInput());
+		}
+		
+		advance();
+	}
+	
+	/**
+	 * Performs one "tick" of game's logic applying given inputs instead of the queued ones.
+	 * Used to play back recorded games.
+	 * @param inputs Inputs applied at the beginning of tick, in order
+	 * @param count Number of inputs to use from the array
+	 */
+	public void tickWithInputs(Input[] inputs, int count)
+	{
+		if (isOver) {
+			return;
+		}
+		
+		if (listener != null) {
+			listener.tickStarted(tickCount);
+		}
+		for (int i = 0; i < count; i++) {
+			handleInput(inputs[i]);
+		}
+		
+		advance();
+	}
+	
+	private void advance()
+	{
+		tickCount++;
+		
+		if (smallTickCount == 0) {
+			
+			if (board.isBlockInContact(block)) {
+				if (lockListener != null) {
+					lockListener.blockLocking(this, block);
+				}
+				if (! board.addBlock(block)) {
+					isOver = true;
+					if (lockListener != null) {
+						lockListener.blockLocked(this, 0, 0);
+					}
+					if (listener != null) {
+						listener.gameEnded(tickCount, score);
+					}
+					return;
+				}
+				int reducedLevels = board.reduceLevels();
+				reducedLevelCount += reducedLevels;
+				score += POINTS_PER_ROW*reducedLevels;
+				if (lockListener != null) {
+					lockListener.blockLocked(this, reducedLevels, POINTS_PER_ROW*reducedLevels);
+				}
+				createNewBlock();
+			} 
+			moveBlockWithOffset(0, 0, -1);
+			smallTickCount = kSmallTicksPerDrop;
+		}
+		
+		smallTickCount--;			
+	}
+	
+	private void createNewBlock() {
+		BlockSpawnEvent event = null;
+		if (kBlockSpawnEventType.isEnabled()) {
+			event = new BlockSpawnEvent();
+			event.begin();
+		}
+		
+		blockCount++;
+		block = BlockFactory.randomBlockAtPosition(random, width/3, depth/3, height);
+		
+		if (event != null) {
+			event.blockNumber = blockCount;
+			event.blockSize = block.getSize();
+			event.commit();
+		}
+	}
+
+
+
+	private void handleInput(Input input) {
+		if (listener != null) {
+			listener.inputApplied(tickCount, input);
+		}
+		
+		switch (input) {
+		case MoveLeft:
+			moveBlockWithOffset(-1, 0, 0);
+			break;
+		case MoveRight:
+			moveBlockWithOffset(1, 0 ,0);
+			break;
+		case MoveUp:
+			moveBlockWithOffset(0, 1, 0);
+			break;
+		case MoveDown:
+			moveBlockWithOffset(0, -1, 0);
+			break;
+		case Drop:
+			dropBlockDown();
+			break;
+		case RotateX:
+			rotateBlockX();
+			break;
+		case RotateY:
+			rotateBlockY();
+			break;
+		case RotateZ:
+			rotateBlockZ();
+			break;
+		default:
+			break;
+		}
+	}
+	
+	private void dropBlockDown()
+	{
+		while (true) {
+			Block newBlock = block.translatedBlock(0, 0, -1);
+			
+			if (board.canBlockBePlacedLegally(newBlock)) {
+				block = newBlock;
+			} else {
+				smallTickCount = 0;
+				return;
+			}
+		}
+	}
+
+	private void moveBlockWithOffset(int x, int y, int z)
+	{
+		Block newBlock = block.translatedBlock(x, y, z);
+		
+		if (board.canBlockBePlacedLegally(newBlock)) {
+			block = newBlock;
+		}
+	}
+	
+	private void rotateBlockX()
+	{
+		Block newBlock = block.xRotatedBlock();
+		if (board.canBlockBePlacedLegally(newBlock)) {
+			block = newBlock;
+		}
+	}
+	
+	private void rotateBlockY() {
+		Block newBlock = block.yRotatedBlock();
+		if (board.canBlockBePlacedLegally(newBlock)) {
+			block = newBlock;
+		}		
+	}
+	
+	private void rotateBlockZ() {
+		Block newBlock = block.zRotatedBlock();
+		if (board.canBlockBePlacedLegally(newBlock)) {
+			block = newBlock;
+		}		
+	}
+
+	
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Restores a previously saved state of the game, which continues from it as if it was never interrupted.
+	 * Seed of the game is kept.
+	 * @param board Restored board, owned by the logic afterwards
+	 * @param block Falling block
+	 * @param score Score
+	 * @param reducedLevelCount Number of levels reduced since the game started
+	 * @param smallTickCount Number of ticks left until the block falls
+	 * @param tickCount Number of ticks since the game started
+	 * @param randomState State of random generator, as returned by getRandomState()
+	 */
+	public void restoreState(Board board, Block block, int score, int reducedLevelCount, int smallTickCount,
+			long tickCount, long randomState) {
+		this.board = board;
+		this.board.setListener(boardListener);
+		this.board.notifyReset();
+		this.block = block;
+		this.score = score;
+		this.reducedLevelCount = reducedLevelCount;
+		this.smallTickCount = smallTickCount;
+		this.tickCount = tickCount;
+		this.random.setState(randomState);
+		this.isOver = false;
+		inputQueue.clear();
+		autoRepeat.reset();
+	}
+	
+	/**
+	 * Number of ticks left until the falling block moves down
+	 * @return small tick count
+	 */
+	public int getSmallTickCount() {
+		return smallTickCount;
+	}
+	
+	/**
+	 * State of the game's random generator
+	 * @return state which can be passed to restoreState()
+	 */
+	public long getRandomState() {
+		return random.getState();
+	}
+	
+	/**
+	 * Sets listener notified about the course of the game
+	 * @param listener Listener or null
+	 */
+	public void setListener(GameListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Sets listener notified about changes of the board, it's moved to every new or restored board.
+	 * A Reset change is published whenever the board is replaced.
+	 * @param boardListener Listener or null
+	 */
+	public void setBoardListener(BoardListener boardListener) {
+		this.boardListener = boardListener;
+		if (board != null) {
+			board.setListener(boardListener);
+			board.notifyReset();
+		}
+	}
+	
+	/**
+	 * Sets listener notified whenever the falling block is locked in place
+	 * @param lockListener Listener or null
+	 */
+	public void setLockListener(LockListener lockListener) {
+		this.lockListener = lockListener;
+	}
+	
+	/**
+	 * Checksum of the whole game state: board, falling block, score, counters and random generator.
+	 * It's cheap to get after every tick, board's part is maintained incrementally. Two games with equal
+	 * checksums at a tick are in the same state (barring collisions), which is used to detect desyncs.
+	 * @return checksum of current state
+	 */
+	public long getChecksum() {
+		Color color = block.getColor();
+		long blockKey = (long)block.getShape() << 48 ^ (long)block.getOrientation() << 40
+				^ (long)(color == null ? 0 : color.ordinal() + 1) << 36
+				^ (long)(block.getX() & 0xFFF) << 24 ^ (long)(block.getY() & 0xFFF) << 12 ^ (block.getZ() & 0xFFF);
+		
+		long checksum = Board.mix(board.getHash() ^ blockKey);
+		checksum = Board.mix(checksum ^ ((long)score << 32 | smallTickCount));
+		checksum = Board.mix(checksum ^ tickCount ^ (isOver ? 1L << 63 : 0));
+		return Board.mix(checksum ^ random.getState());
+	}
+	
+	/**
+	 * Seed of the current game's random generator
+	 * @return seed passed to newGame()
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Number of ticks performed since the game started
+	 * @return tick count
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+	
+	/**
+	 * Number of levels reduced since the game started
+	 * @return Number of reduced levels
+	 */
+	public int getReducedLevelCount() {
+		return reducedLevelCount;
+	}
+	
+	/**
+	 * Queue of input events handled on every tick. Events may be offered by a different thread
+	 * than the one running the logic.
+	 * @return input queue
+	 */
+	public InputQueue getInputQueue() {
+		return inputQueue;
+	}
+	
+	/**
+	 * Arrival time of the latest input event applied by the logic
+	 * @return time as returned by System.nanoTime(), 0 if no input was applied yet
+	 */
+	public long getLastInputTime() {
+		return lastInputTime;
+	}
+	
+	/**
+	 * Time at which the latest input event was applied by the logic
+	 * @return time as returned by System.nanoTime(), 0 if no input was applied yet
+	 */
+	public long getLastInputApplyTime() {
+		return lastInputApplyTime;
+	}
+	
+	/**
+	 * Whether the game is over, i.e. the board has overflowed
+	 * @return true if game is over
+	 */
+	public boolean isOver() {
+		return isOver;
+	}
+	
+	/**
+	 * Forgets keys held down, so that they stop auto-repeating until pressed again. Used when their
+	 * releases may have been missed, e.g. while the game was paused.
+	 */
+	public void releaseHeldInputs() {
+		autoRepeat.reset();
+	}
+	
+	/**
+	 * Getter for the board. Only the thread running the logic may access it.
+	 * @return game's board
+	 */
+	public Board getBoard() {
+		return board;
+	}
+	
+	/**
+	 * Getter for currently falling block
+	 * @return falling block
+	 */
+	public Block getBlock() {
+		return block;
+	}
+	
+	/**
+	 * Number of blocks created since the logic was constructed
+	 * @return Number of created blocks
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+
+
+
+}
+
@@ -0,0 +1,496 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds a large number of games off-heap, without GameLogic, Board and Block objects. Every part of
+ * games' state is stored in its own direct buffer (struct of arrays) indexed by game: each level of
+ * a board is a bitset of occupied cells and 2 bits of color per cell, the falling block is its shape,
+ * orientation, color and position. Games are advanced by step(), which ticks a range of games in a
+ * single loop. Ticks follow GameLogic.tickWithInputs() exactly, which GamePoolTest verifies.
+ *
+ * Levels of the boards can have at most 32 cells. Games are not thread safe, but disjoint ranges of
+ * games may be stepped by different threads: all the state, random generators included, is kept
+ * per game.
+ *
+ */
+public class GamePool {
+	
+	/**
+	 * Largest number of cells of a level
+	 */
+	public static final int MAX_LEVEL_CELLS = 32;
+	
+	private static final Input[] INPUTS = Input.values();
+	private static final Color[] COLORS = Color.values();
+	private static final int kColorBits = 2;
+	
+	// cells of every shape in every orientation, in the order Board adds them: packed as i << 16 | j << 8 | k
+	private static final int[][] CELLS;
+	
+	static {
+		CELLS = new int[BlockFactory.shapeCount()*Orientation.COUNT][];
+		int[] cells = new int[64];
+		for (int shape = 0; shape < BlockFactory.shapeCount(); shape++) {
+			for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+				Block block = BlockFactory.blockWithShape(shape, orientation, COLORS[0], 0, 0, 0);
+				int count = 0;
+				for (int i = 0; i < block.getSize(); i++) {
+					for (int j = 0; j < block.getSize(); j++) {
+						for (int k = 0; k < block.getSize(); k++) {
+							if (block.elementAtLocation(i, j, k) != null) {
+								cells[count++] = i << 16 | j << 8 | k;
+							}
+						}
+					}
+				}
+				CELLS[shape*Orientation.COUNT + orientation] = Arrays.copyOf(cells, count);
+			}
+		}
+	}
+	
+	private final int capacity;
+	private final int width;
+	private final int depth;
+	private final int height;
+	private final int fullLevel;
+	
+	// [game*height + z]
+	private final IntBuffer occupancy;
+	private final LongBuffer colors;
+	
+	// [game]
+	private final ShortBuffer blockShape;
+	private final ByteBuffer blockOrientation;
+	private final ByteBuffer blockColor;
+	private final IntBuffer blockX;
+	private final IntBuffer blockY;
+	private final IntBuffer blockZ;
+	private final IntBuffer score;
+	private final IntBuffer reducedLevelCount;
+	private final IntBuffer smallTickCount;
+	private final LongBuffer tickCount;
+	private final LongBuffer randomState;
+	private final ByteBuffer isOver;
+	
+	/**
+	 * Designated constructor, all the games are over until started with newGame()
+	 * @param capacity Number of games
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 */
+	public GamePool(int capacity, int width, int depth, int height)
+	{
+		if (width*depth > MAX_LEVEL_CELLS) {
+			throw new IllegalArgumentException("Levels of more than " + MAX_LEVEL_CELLS + " cells are not supported");
+		}
+		BlockFactory.checkWell(width, depth);
+		if ((long)capacity*height*8 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many games for boards of height " + height);
+		}
+		
+		this.capacity = capacity;
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+		this.fullLevel = (int)((1L << width*depth) - 1);
+		
+		occupancy = allocate(capacity*height*4).asIntBuffer();
+		colors = allocate(capacity*height*8).asLongBuffer();
+		blockShape = allocate(capacity*2).asShortBuffer();
+		blockOrientation = allocate(capacity);
+		blockColor = allocate(capacity);
+		blockX = allocate(capacity*4).asIntBuffer();
+		blockY = allocate(capacity*4).asIntBuffer();
+		blockZ = allocate(capacity*4).asIntBuffer();
+		score = allocate(capacity*4).asIntBuffer();
+		reducedLevelCount = allocate(capacity*4).asIntBuffer();
+		smallTickCount = allocate(capacity*4).asIntBuffer();
+		tickCount = allocate(capacity*8).asLongBuffer();
+		randomState = allocate(capacity*8).asLongBuffer();
+		isOver = allocate(capacity);
+		
+		for (int game = 0; game < capacity; game++) {
+			isOver.put(game, (byte)1);
+		}
+	}
+	
+	private static ByteBuffer allocate(int bytes)
+	{
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+	
+	/**
+	 * Starts new game, the same way GameLogic.newGame() does
+	 * @param game Index of game
+	 * @param seed Seed of random generator deciding the sequence of blocks
+	 */
+	public void newGame(int game, long seed)
+	{
+		for (int z = 0; z < height; z++) {
+			occupancy.put(game*height + z, 0);
+			colors.put(game*height + z, 0);
+		}
+		score.put(game, 0);
+		reducedLevelCount.put(game, 0);
+		smallTickCount.put(game, 0);
+		tickCount.put(game, 0);
+		isOver.put(game, (byte)0);
+		
+		randomState.put(game, SeededRandom.stateForSeed(seed));
+		createNewBlock(game);
+	}
+	
+	/**
+	 * Ticks a range of games, applying at most one input to each
+	 * @param from Index of first ticked game
+	 * @param to Index after the last ticked game
+	 * @param inputs Ordinals of Input applied to games, indexed by game, or null for no inputs
+	 */
+	public void step(int from, int to, byte[] inputs)
+	{
+		for (int game = from; game < to; game++) {
+			if (isOver.get(game) != 0) {
+				continue;
+			}
+			
+			if (inputs != null) {
+				handleInput(game, INPUTS[inputs[game]]);
+			}
+			advance(game);
+		}
+	}
+	
+	/**
+	 * Performs one tick of a game, the same way GameLogic.tickWithInputs() does
+	 * @param game Index of game
+	 * @param inputs Inputs applied at the beginning of tick, in order
+	 * @param count Number of inputs to use from the array
+	 */
+	public void tick(int game, Input[] inputs, int count)
+	{
+		if (isOver.get(game) != 0) {
+			return;
+		}
+		
+		for (int i = 0; i < count; i++) {
+			handleInput(game, inputs[i]);
+		}
+		advance(game);
+	}
+	
+	private void advance(int game)
+	{
+		tickCount.put(game, tickCount.get(game) + 1);
+		
+		int smallTicks = smallTickCount.get(game);
+		if (smallTicks == 0) {
+			int shape = blockShape.get(game) & 0xFFFF;
+			int orientation = blockOrientation.get(game);
+			int x = blockX.get(game);
+			int y = blockY.get(game);
+			int z = blockZ.get(game);
+			
+			if (isBlockInContact(game, shape, orientation, x, y, z)) {
+				if (!addBlock(game, shape, orientation, x, y, z)) {
+					isOver.put(game, (byte)1);
+					return;
+				}
+				int reducedLevels = reduceLevels(game);
+				reducedLevelCount.put(game, reducedLevelCount.get(game) + reducedLevels);
+				score.put(game, score.get(game) + GameLogic.POINTS_PER_ROW*reducedLevels);
+				createNewBlock(game);
+			}
+			moveBlock(game, 0, 0, -1);
+			smallTicks = GameLogic.kSmallTicksPerDrop;
+		}
+		
+		smallTickCount.put(game, smallTicks - 1);
+	}
+	
+	private void createNewBlock(int game)
+	{
+		// the same draws as BlockFactory.randomBlockAtPosition(), on the game's own state
+		long state = SeededRandom.nextState(randomState.get(game));
+		int shape = SeededRandom.intForState(state, BlockFactory.shapeCount());
+		state = SeededRandom.nextState(state);
+		int color = SeededRandom.intForState(state, COLORS.length);
+		randomState.put(game, state);
+		
+		blockShape.put(game, (short)shape);
+		blockOrientation.put(game, (byte)0);
+		blockColor.put(game, (byte)color);
+		blockX.put(game, width/3);
+		blockY.put(game, depth/3);
+		blockZ.put(game, height);
+	}
+	
+	private void handleInput(int game, Input input)
+	{
+		switch (input) {
+		case MoveLeft:
+			moveBlock(game, -1, 0, 0);
+			break;
+		case MoveRight:
+			moveBlock(game, 1, 0, 0);
+			break;
+		case MoveUp:
+			moveBlock(game, 0, 1, 0);
+			break;
+		case MoveDown:
+			moveBlock(game, 0, -1, 0);
+			break;
+		case Drop:
+			dropBlock(game);
+			break;
+		case RotateX:
+			rotateBlock(game, Orientation.xRotated(blockOrientation.get(game)));
+			break;
+		case RotateY:
+			rotateBlock(game, Orientation.yRotated(blockOrientation.get(game)));
+			break;
+		case RotateZ:
+			rotateBlock(game, Orientation.zRotated(blockOrientation.get(game)));
+			break;
+		default:
+			break;
+		}
+	}
+	
+	private void moveBlock(int game, int dx, int dy, int dz)
+	{
+		int x = blockX.get(game) + dx;
+		int y = blockY.get(game) + dy;
+		int z = blockZ.get(game) + dz;
+		if (canBlockBePlacedLegally(game, blockShape.get(game) & 0xFFFF, blockOrientation.get(game), x, y, z)) {
+			blockX.put(game, x);
+			blockY.put(game, y);
+			blockZ.put(game, z);
+		}
+	}
+	
+	private void dropBlock(int game)
+	{
+		int shape = blockShape.get(game) & 0xFFFF;
+		int orientation = blockOrientation.get(game);
+		int x = blockX.get(game);
+		int y = blockY.get(game);
+		int z = blockZ.get(game);
+		while (canBlockBePlacedLegally(game, shape, orientation, x, y, z - 1)) {
+			z--;
+		}
+		blockZ.put(game, z);
+		smallTickCount.put(game, 0);
+	}
+	
+	private void rotateBlock(int game, int orientation)
+	{
+		if (canBlockBePlacedLegally(game, blockShape.get(game) & 0xFFFF, orientation, blockX.get(game), blockY.get(game), blockZ.get(game))) {
+			blockOrientation.put(game, (byte)orientation);
+		}
+	}
+	
+	private boolean canBlockBePlacedLegally(int game, int shape, int orientation, int x, int y, int z)
+	{
+		int[] cells = CELLS[shape*Orientation.COUNT + orientation];
+		for (int cell : cells) {
+			int cellX = x + (cell >>> 16);
+			int cellY = y + (cell >>> 8 & 0xFF);
+			int cellZ = z + (cell & 0xFF);
+			if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= depth || cellZ < 0) {
+				return false;
+			}
+			if (cellZ < height && (occupancy.get(game*height + cellZ) & 1 << cellY*width + cellX) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private boolean isBlockInContact(int game, int shape, int orientation, int x, int y, int z)
+	{
+		int[] cells = CELLS[shape*Orientation.COUNT + orientation];
+		for (int cell : cells) {
+			int cellX = x + (cell >>> 16);
+			int cellY = y + (cell >>> 8 & 0xFF);
+			int cellZ = z + (cell & 0xFF);
+			if (cellZ == 0) {
+				return true;
+			}
+			if (cellZ <= height && (occupancy.get(game*height + cellZ - 1) & 1 << cellY*width + cellX) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean addBlock(int game, int shape, int orientation, int x, int y, int z)
+	{
+		long color = blockColor.get(game);
+		int[] cells = CELLS[shape*Orientation.COUNT + orientation];
+		for (int cell : cells) {
+			int cellZ = z + (cell & 0xFF);
+			if (cellZ >= height) {
+				return false; // elements added so far stay, like on Board
+			}
+			int bit = (y + (cell >>> 8 & 0xFF))*width + x + (cell >>> 16);
+			int level = game*height + cellZ;
+			occupancy.put(level, occupancy.get(level) | 1 << bit);
+			colors.put(level, colors.get(level) | color << kColorBits*bit);
+		}
+		return true;
+	}
+	
+	private int reduceLevels(int game)
+	{
+		int base = game*height;
+		int reducedLevels = 0;
+		for (int z = 0; z < height; z++) {
+			int level = occupancy.get(base + z);
+			if (level == fullLevel) {
+				reducedLevels++;
+			} else if (reducedLevels > 0) {
+				occupancy.put(base + z - reducedLevels, level);
+				colors.put(base + z - reducedLevels, colors.get(base + z));
+			}
+		}
+		for (int z = height - reducedLevels; z < height; z++) {
+			occupancy.put(base + z, 0);
+			colors.put(base + z, 0);
+		}
+		return reducedLevels;
+	}
+	
+	/**
+	 * Returns the color of board's element at given position
+	 * @param game Index of game
+	 * @param i Index among "width" axis
+	 * @param j Index among "depth" axis
+	 * @param k Index among "height" axis
+	 * @return Color of element or null if position is empty
+	 */
+	public Color colorAtLocation(int game, int i, int j, int k)
+	{
+		int bit = j*width + i;
+		if ((occupancy.get(game*height + k) & 1 << bit) == 0) {
+			return null;
+		}
+		return COLORS[(int)(colors.get(game*height + k) >>> kColorBits*bit) & ((1 << kColorBits) - 1)];
+	}
+	
+	/**
+	 * Falling block of a game as an object, e.g. to be rendered
+	 * @param game Index of game
+	 * @return New block
+	 */
+	public Block getBlock(int game)
+	{
+		return BlockFactory.blockWithShape(blockShape.get(game) & 0xFFFF, blockOrientation.get(game), COLORS[blockColor.get(game)],
+				blockX.get(game), blockY.get(game), blockZ.get(game));
+	}
+	
+	/**
+	 * Number of games of the pool
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Score of a game
+	 * @param game Index of game
+	 * @return score
+	 */
+	public int getScore(int game) {
+		return score.get(game);
+	}
+	
+	/**
+	 * Number of levels reduced in a game
+	 * @param game Index of game
+	 * @return reduced levels
+	 */
+	public int getReducedLevelCount(int game) {
+		return reducedLevelCount.get(game);
+	}
+	
+	/**
+	 * Number of small ticks left until the block of a game falls
+	 * @param game Index of game
+	 * @return small tick count
+	 */
+	public int getSmallTickCount(int game) {
+		return smallTickCount.get(game);
+	}
+	
+	/**
+	 * Number of ticks of a game
+	 * @param game Index of game
+	 * @return tick count
+	 */
+	public long getTickCount(int game) {
+		return tickCount.get(game);
+	}
+	
+	/**
+	 * State of random generator of a game
+	 * @param game Index of game
+	 * @return state, see SeededRandom.getState()
+	 */
+	public long getRandomState(int game) {
+		return randomState.get(game);
+	}
+	
+	/**
+	 * Whether a game is over
+	 * @param game Index of game
+	 * @return true if game is over or was never started
+	 */
+	public boolean isOver(int game) {
+		return isOver.get(game) != 0;
+	}
+	
+	/**
+	 * Compares state of a game with a GameLogic ticked the same way
+	 * @param game Index of game
+	 * @param logic Compared logic
+	 * @return Description of the first difference found or null if states are equal
+	 */
+	String compare(int game, GameLogic logic)
+	{
+		if (isOver(game) != logic.isOver() || getTickCount(game) != logic.getTickCount()
+				|| getSmallTickCount(game) != logic.getSmallTickCount() || getRandomState(game) != logic.getRandomState()) {
+			return "counters";
+		}
+		if (getScore(game) != logic.getScore() || getReducedLevelCount(game) != logic.getReducedLevelCount()) {
+			return "score";
+		}
+		
+		Block block = logic.getBlock();
+		if ((blockShape.get(game) & 0xFFFF) != block.getShape() || blockOrientation.get(game) != block.getOrientation()
+				|| COLORS[blockColor.get(game)] != block.getColor() || blockX.get(game) != block.getX()
+				|| blockY.get(game) != block.getY() || blockZ.get(game) != block.getZ()) {
+			return "block";
+		}
+		
+		Board board = logic.getBoard();
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < depth; j++) {
+				for (int k = 0; k < height; k++) {
+					Element element = board.elementAtLocation(i, j, k);
+					if (colorAtLocation(game, i, j, k) != (element == null ? null : element.getColor())) {
+						return "board at " + i + ", " + j + ", " + k;
+					}
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,252 @@
+package tetris;
+
+import java.util.Arrays;
+
+/**
+ * Compact copy of GameLogic's state taken after a single tick. Snapshots are pre-allocated and
+ * recycled by SnapshotExchange, they are filled on the simulation thread and read by rendering
+ * (or any other) threads, which never touch GameLogic directly. Consumers must not keep a snapshot
+ * after releasing it.
+ *
+ */
+public class GameSnapshot {
+	
+	private static final Color[] COLORS = Color.values();
+
+	private final int width;
+	private final int depth;
+	private final int height;
+	
+	// level after level, 0 for empty cell, color's ordinal + 1 otherwise
+	private final byte[] cells;
+	private int topLevel; // levels at and above it are empty
+	
+	private Block block;
+	private int blockNumber;
+	private int previousX;
+	private int previousY;
+	private int previousZ;
+	
+	private int score;
+	private int levels;
+	private boolean isOver;
+	private long nanoTime;
+	private long inputTime;
+	private long inputApplyTime;
+	
+	// index of the snapshot in its SnapshotExchange
+	final int slot;
+	
+	/**
+	 * Creates an empty snapshot for board of given size
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 * @param slot Index of snapshot in owning exchange
+	 */
+	GameSnapshot(int width, int depth, int height, int slot)
+	{
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+		this.cells = new byte[width*depth*height];
+		this.slot = slot;
+	}
+	
+	/**
+	 * Copies the current state of logic into the snapshot
+	 * @param logic Copied game logic
+	 * @param previous Snapshot taken one tick earlier (or null), used to interpolate falling block
+	 * @param nanoTime Time at which the snapshot was taken, as returned by System.nanoTime()
+	 */
+	void copyFrom(GameLogic logic, GameSnapshot previous, long nanoTime)
+	{
+		Board board = logic.getBoard();
+		assert(board.getWidth() == width && board.getDepth() == depth && board.getHeight() == height);
+		
+		// only the occupied part of the board is copied, and the part this snapshot held before is cleared
+		int levelSize = width*depth;
+		int newTopLevel = board.getTopLevel();
+		for (int k = 0; k < newTopLevel; k++) {
+			board.copyLevel(k, cells, k*levelSize);
+		}
+		if (topLevel > newTopLevel) {
+			Arrays.fill(cells, newTopLevel*levelSize, topLevel*levelSize, (byte)0);
+		}
+		topLevel = newTopLevel;
+		
+		this.block = logic.getBlock();
+		this.blockNumber = logic.getBlockCount();
+		this.score = logic.getScore();
+		this.levels = logic.getReducedLevelCount();
+		this.isOver = logic.isOver();
+		this.nanoTime = nanoTime;
+		this.inputTime = logic.getLastInputTime();
+		this.inputApplyTime = logic.getLastInputApplyTime();
+		
+		if (previous != null && previous.blockNumber == blockNumber) {
+			previousX = previous.block.getX();
+			previousY = previous.block.getY();
+			previousZ = previous.block.getZ();
+		} else {
+			previousX = block.getX();
+			previousY = block.getY();
+			previousZ = block.getZ();
+		}
+	}
+	
+	private int indexOf(int i, int j, int k)
+	{
+		return (k*depth + j)*width + i;
+	}
+	
+	/**
+	 * Whether element at given position can be seen, i.e. it's not surrounded by other elements from
+	 * all sides. Elements at the walls of the board are always visible.
+	 * @param i Index among "width" axis
+	 * @param j Index among "depth" axis
+	 * @param k Index among "height" axis
+	 * @return false if all neighbours are occupied
+	 */
+	public boolean isVisible(int i, int j, int k)
+	{
+		if (i == 0 || j == 0 || k == 0 || i == width - 1 || j == depth - 1 || k == height - 1) {
+			return true;
+		}
+		int index = indexOf(i, j, k);
+		int levelSize = width*depth;
+		return cells[index - 1] == 0 || cells[index + 1] == 0 || cells[index - width] == 0
+				|| cells[index + width] == 0 || cells[index - levelSize] == 0 || cells[index + levelSize] == 0;
+	}
+	
+	/**
+	 * Returns the color of board's element at given position
+	 * @param i Index among "width" axis
+	 * @param j Index among "depth" axis
+	 * @param k Index among "height" axis
+	 * @return Color of element or null if position is empty
+	 */
+	public Color colorAtLocation(int i, int j, int k)
+	{
+		int cell = cells[indexOf(i, j, k)];
+		return cell == 0 ? null : COLORS[cell - 1];
+	}
+	
+	/**
+	 * Returns "width" coordinate of falling block, interpolated between previous and current tick
+	 * @param alpha Fraction of tick that passed since snapshot was taken, from 0 to 1
+	 * @return Interpolated coordinate
+	 */
+	public float interpolatedX(float alpha)
+	{
+		return previousX + (block.getX() - previousX)*alpha;
+	}
+	
+	/**
+	 * Returns "depth" coordinate of falling block, interpolated between previous and current tick
+	 * @param alpha Fraction of tick that passed since snapshot was taken, from 0 to 1
+	 * @return Interpolated coordinate
+	 */
+	public float interpolatedY(float alpha)
+	{
+		return previousY + (block.getY() - previousY)*alpha;
+	}
+	
+	/**
+	 * Returns "height" coordinate of falling block, interpolated between previous and current tick
+	 * @param alpha Fraction of tick that passed since snapshot was taken, from 0 to 1
+	 * @return Interpolated coordinate
+	 */
+	public float interpolatedZ(float alpha)
+	{
+		return previousZ + (block.getZ() - previousZ)*alpha;
+	}
+
+	/**
+	 * Getter for board's width
+	 * @return board's width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for board's depth
+	 * @return board's depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Getter for board's height
+	 * @return board's height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Bound of the occupied part of the board, as in Board.getTopLevel()
+	 * @return Number of levels from the bottom that may hold elements
+	 */
+	public int getTopLevel() {
+		return topLevel;
+	}
+	
+	/**
+	 * Getter for falling block
+	 * @return falling block
+	 */
+	public Block getBlock() {
+		return block;
+	}
+
+	/**
+	 * Getter for score
+	 * @return score at the time of snapshot
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Getter for number of reduced levels
+	 * @return levels reduced since the game started, at the time of snapshot
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Whether game was over at the time of snapshot
+	 * @return true if game was over
+	 */
+	public boolean isOver() {
+		return isOver;
+	}
+
+	/**
+	 * Getter for snapshot's time
+	 * @return time at which snapshot was taken, as returned by System.nanoTime()
+	 */
+	public long getNanoTime() {
+		return nanoTime;
+	}
+
+	/**
+	 * Arrival time of the latest input reflected by the snapshot
+	 * @return time as returned by System.nanoTime(), 0 if there was no input yet
+	 */
+	public long getInputTime() {
+		return inputTime;
+	}
+
+	/**
+	 * Time at which the latest input reflected by the snapshot was applied
+	 * @return time as returned by System.nanoTime(), 0 if there was no input yet
+	 */
+	public long getInputApplyTime() {
+		return inputApplyTime;
+	}
+}
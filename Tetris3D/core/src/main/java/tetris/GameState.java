@@ -0,0 +1,12 @@
+package tetris;
+
+/**
+ * States of the game as seen by the Engine. The game loop keeps running in all of them,
+ * only the simulation is stopped when the game is not being played.
+ *
+ */
+public enum GameState {
+	Playing,
+	Paused,
+	GameOver
+}
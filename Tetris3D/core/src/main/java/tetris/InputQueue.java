@@ -0,0 +1,100 @@
+package tetris;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, allocation-free ring buffer of timestamped input events. It's meant for a single producer
+ * (thread reading the keyboard) and a single consumer (thread running GameLogic), neither of them ever blocks.
+ *
+ */
+public class InputQueue {
+	
+	/**
+	 * Receives events drained from the queue
+	 */
+	public interface Handler {
+		/**
+		 * Called for every drained event, in order of arrival
+		 * @param input Input that was pressed or released
+		 * @param pressed true if key was pressed, false if released
+		 * @param nanoTime Time of event, as returned by System.nanoTime()
+		 */
+		void inputEvent(Input input, boolean pressed, long nanoTime);
+	}
+	
+	private static final Input[] INPUTS = Input.values();
+
+	private final int mask;
+	private final byte[] inputs;
+	private final boolean[] pressed;
+	private final long[] nanoTimes;
+	
+	private final AtomicLong head = new AtomicLong(); // next event to drain, written by consumer
+	private final AtomicLong tail = new AtomicLong(); // next free slot, written by producer
+	
+	/**
+	 * Designated constructor
+	 * @param capacity Maximum number of pending events, must be a power of two
+	 */
+	public InputQueue(int capacity)
+	{
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		
+		mask = capacity - 1;
+		inputs = new byte[capacity];
+		pressed = new boolean[capacity];
+		nanoTimes = new long[capacity];
+	}
+	
+	/**
+	 * Producer side. Appends an event to the queue.
+	 * @param input Input that was pressed or released
+	 * @param isPressed true if key was pressed, false if released
+	 * @param nanoTime Time of event, as returned by System.nanoTime()
+	 * @return false if queue is full and event was dropped
+	 */
+	public boolean offer(Input input, boolean isPressed, long nanoTime)
+	{
+		long t = tail.get();
+		if (t - head.get() > mask) {
+			return false;
+		}
+		
+		int index = (int)t & mask;
+		inputs[index] = (byte)input.ordinal();
+		pressed[index] = isPressed;
+		nanoTimes[index] = nanoTime;
+		
+		tail.lazySet(t + 1); // publishes the slot written above
+		return true;
+	}
+	
+	/**
+	 * Consumer side. Passes all pending events to handler and removes them from the queue.
+	 * @param handler Receiver of events
+	 * @return Number of drained events
+	 */
+	public int drain(Handler handler)
+	{
+		long h = head.get();
+		long t = tail.get();
+		
+		for (long i = h; i < t; i++) {
+			int index = (int)i & mask;
+			handler.inputEvent(INPUTS[inputs[index]], pressed[index], nanoTimes[index]);
+		}
+		
+		head.lazySet(t);
+		return (int)(t - h);
+	}
+	
+	/**
+	 * Consumer side. Drops all pending events.
+	 */
+	public void clear()
+	{
+		head.lazySet(tail.get());
+	}
+}
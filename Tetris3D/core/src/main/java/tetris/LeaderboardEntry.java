@@ -0,0 +1,60 @@
+package tetris;
+
+/**
+ * A single immutable record of the leaderboard
+ *
+ */
+public class LeaderboardEntry {
+	
+	private final String name;
+	private final int score;
+	private final int levels;
+	private final long timestamp;
+	
+	/**
+	 * Designated constructor
+	 * @param name Player's name
+	 * @param score Final score of the game
+	 * @param levels Number of levels reduced during the game
+	 * @param timestamp Time at which the game ended, in milliseconds since epoch
+	 */
+	public LeaderboardEntry(String name, int score, int levels, long timestamp)
+	{
+		this.name = name;
+		this.score = score;
+		this.levels = levels;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Getter for player's name
+	 * @return player's name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for score
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Getter for number of reduced levels
+	 * @return number of levels
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Getter for time at which the game ended
+	 * @return milliseconds since epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
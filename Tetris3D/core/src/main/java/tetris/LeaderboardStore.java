@@ -0,0 +1,348 @@
+package tetris;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the top entries of the leaderboard in memory and persists them on a background thread.
+ * Submitting an entry never touches the disk; the writer thread coalesces rapid updates and
+ * writes the whole table to a temporary file, forces it to disk and atomically renames it over
+ * the previous one, so a crash at any point leaves either the old or the new table intact.
+ *
+ */
+public class LeaderboardStore {
+	
+	private static final String kHeader = "tetris-leaderboard 1";
+	private static final String kFooter = "crc32 ";
+	// Time writer waits after an update, so that updates following it are written together
+	private static final long kCoalesceMillis = 250;
+	// Time writer waits after a failed write before retrying, doubled after every failure
+	private static final long kFirstRetryMillis = 1000;
+	private static final long kMaxRetryMillis = 60000;
+	
+	private final File file;
+	private final File tempFile;
+	private final int capacity;
+	
+	// entries sorted by score, guarded by this
+	private final List<LeaderboardEntry> entries = new ArrayList<LeaderboardEntry>();
+	private int version;
+	private int writtenVersion;
+	private boolean closed;
+	
+	private final Thread writer;
+	
+	/**
+	 * Designated constructor, loads entries from file and starts writer thread
+	 * @param fileName Name of leaderboard file
+	 * @param capacity Number of kept entries
+	 */
+	public LeaderboardStore(String fileName, int capacity)
+	{
+		this.file = new File(fileName);
+		this.tempFile = new File(fileName + ".tmp");
+		this.capacity = capacity;
+		
+		load();
+		
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "LeaderboardWriter");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * Adds an entry if it's good enough to be among the top ones. Never blocks on disk.
+	 * @param entry Submitted entry
+	 * @return Position of entry on the leaderboard (0 being the best) or -1 if it didn't make it
+	 */
+	public synchronized int submit(LeaderboardEntry entry)
+	{
+		int position = insert(entry);
+		if (position >= 0) {
+			version++;
+			notifyAll();
+		}
+		return position;
+	}
+	
+	/**
+	 * Returns the best score on the leaderboard
+	 * @return best score or 0 if leaderboard is empty
+	 */
+	public synchronized int getHighScore()
+	{
+		return entries.isEmpty() ? 0 : entries.get(0).getScore();
+	}
+	
+	/**
+	 * Returns a copy of the leaderboard
+	 * @return entries sorted from the best
+	 */
+	public synchronized List<LeaderboardEntry> getEntries()
+	{
+		return new ArrayList<LeaderboardEntry>(entries);
+	}
+	
+	/**
+	 * Writes pending changes and stops writer thread
+	 */
+	public void close()
+	{
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Imports high score saved by older versions of the game as a single integer, if the
+	 * leaderboard is empty.
+	 * @param fileName Name of legacy high score file
+	 * @param name Name assigned to the imported entry
+	 */
+	public void importLegacyHighScore(String fileName, String name)
+	{
+		File legacyFile = new File(fileName);
+		if (getHighScore() > 0 || !legacyFile.exists()) {
+			return;
+		}
+		
+		Scanner scanner = null;
+		try {
+			scanner = new Scanner(legacyFile);
+			submit(new LeaderboardEntry(name, scanner.nextInt(), 0, legacyFile.lastModified()));
+		} catch (FileNotFoundException e) {
+			// nothing to import
+		} catch (java.util.NoSuchElementException e) {
+			// nothing to import
+		} finally {
+			if (scanner != null) {
+				scanner.close();
+			}
+		}
+	}
+	
+	private int insert(LeaderboardEntry entry)
+	{
+		int position = 0;
+		while (position < entries.size() && entries.get(position).getScore() >= entry.getScore()) {
+			position++;
+		}
+		
+		if (position >= capacity) {
+			return -1;
+		}
+		
+		entries.add(position, entry);
+		if (entries.size() > capacity) {
+			entries.remove(entries.size() - 1);
+		}
+		return position;
+	}
+	
+	private void writeLoop()
+	{
+		long retryMillis = kFirstRetryMillis;
+		while (true) {
+			List<LeaderboardEntry> copy;
+			int copiedVersion;
+			
+			synchronized (this) {
+				while (version == writtenVersion && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				
+				if (version == writtenVersion) {
+					return; // closed and nothing left to write
+				}
+				
+				// submits notify as well, so the window is waited out before writing them all at once
+				if (!waitUnlessClosed(kCoalesceMillis)) {
+					return;
+				}
+				
+				copy = new ArrayList<LeaderboardEntry>(entries);
+				copiedVersion = version;
+			}
+			
+			try {
+				write(copy);
+			} catch (IOException e) {
+				e.printStackTrace();
+				synchronized (this) {
+					if (closed || !waitUnlessClosed(retryMillis)) {
+						return; // closed, this was the last attempt
+					}
+				}
+				retryMillis = Math.min(2*retryMillis, kMaxRetryMillis);
+				continue;
+			}
+			
+			retryMillis = kFirstRetryMillis;
+			synchronized (this) {
+				writtenVersion = copiedVersion;
+			}
+		}
+	}
+	
+	/**
+	 * Waits given time or until the store is closed, the caller must hold the lock
+	 * @param millis Time to wait
+	 * @return false if the writer was interrupted
+	 */
+	private boolean waitUnlessClosed(long millis)
+	{
+		long deadline = System.nanoTime() + millis*1000000L;
+		long remainingMillis;
+		while (!closed && (remainingMillis = (deadline - System.nanoTime())/1000000L) > 0) {
+			try {
+				wait(remainingMillis);
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void write(List<LeaderboardEntry> table) throws IOException
+	{
+		StringBuilder body = new StringBuilder();
+		body.append(kHeader).append('\n');
+		for (LeaderboardEntry entry : table) {
+			body.append(entry.getScore()).append('\t')
+				.append(entry.getLevels()).append('\t')
+				.append(entry.getTimestamp()).append('\t')
+				.append(entry.getName().replace('\t', ' ').replace('\n', ' ')).append('\n');
+		}
+		
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		byte[] footer = (kFooter + Long.toHexString(crc.getValue()) + "\n").getBytes(StandardCharsets.UTF_8);
+		
+		FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(bytes.length + footer.length);
+			buffer.put(bytes).put(footer).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		syncDirectory();
+	}
+	
+	private void syncDirectory()
+	{
+		// the rename survives a crash only once the directory is on disk as well
+		File directory = file.getAbsoluteFile().getParentFile();
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			// directories can't be opened on some platforms (Windows), the rename is left to the file system
+		}
+	}
+	
+	private void load()
+	{
+		if (!file.exists()) {
+			return;
+		}
+		
+		List<LeaderboardEntry> loaded = new ArrayList<LeaderboardEntry>();
+		CRC32 crc = new CRC32();
+		boolean valid = false;
+		
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			
+			String line = reader.readLine();
+			if (!kHeader.equals(line)) {
+				throw new IOException("Unknown leaderboard format");
+			}
+			crc.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+			
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(kFooter)) {
+					valid = Long.parseLong(line.substring(kFooter.length()), 16) == crc.getValue();
+					break;
+				}
+				crc.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+				
+				String[] fields = line.split("\t", 4);
+				loaded.add(new LeaderboardEntry(fields[3], Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+						Long.parseLong(fields[2])));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			e.printStackTrace(); // malformed line
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		if (!valid) {
+			// the next write would replace it, so it's kept aside for manual recovery
+			File corruptFile = new File(file.getPath() + ".corrupt");
+			try {
+				Files.move(file.toPath(), corruptFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				System.err.println("Leaderboard " + file + " is corrupted, it was moved to " + corruptFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return;
+		}
+		
+		synchronized (this) {
+			for (LeaderboardEntry entry : loaded) {
+				insert(entry);
+			}
+		}
+	}
+}
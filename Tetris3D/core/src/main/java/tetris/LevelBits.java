@@ -0,0 +1,99 @@
+package tetris;
+
+/**
+ * Operations on levels of a board stored as bitsets, one bit per cell and a whole number of longs
+ * per level. The scalar implementation is always available, when the JVM is started with
+ * --add-modules jdk.incubator.vector a vectorized one is used instead, unless disabled with
+ * -Dtetris.vectorLevels=false.
+ *
+ */
+abstract class LevelBits {
+	
+	private static final String kVectorModule = "jdk.incubator.vector";
+	private static final String kVectorClassName = "tetris.VectorLevelBits";
+	private static final String kVectorProperty = "tetris.vectorLevels";
+	
+	private static final LevelBits SCALAR = new Scalar();
+	private static final LevelBits DEFAULT = create(Boolean.parseBoolean(System.getProperty(kVectorProperty, "true")));
+	
+	/**
+	 * Scalar implementation, compares a word at a time
+	 */
+	static final class Scalar extends LevelBits {
+		
+		@Override
+		boolean isFull(long[] bits, int offset, long[] full, int words)
+		{
+			for (int i = 0; i < words; i++) {
+				if (bits[offset + i] != full[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		int getMinWords()
+		{
+			return 0;
+		}
+		
+		@Override
+		String getName()
+		{
+			return "scalar";
+		}
+	}
+	
+	/**
+	 * Implementation used by boards with given level size
+	 * @param words Number of words per level
+	 * @return vectorized implementation if available and worth it for such levels, scalar one otherwise
+	 */
+	static LevelBits forLevel(int words)
+	{
+		return words >= DEFAULT.getMinWords() ? DEFAULT : SCALAR;
+	}
+	
+	/**
+	 * Creates an implementation
+	 * @param vectorized Whether vectorized implementation should be used, if it's available
+	 * @return New instance
+	 */
+	static LevelBits create(boolean vectorized)
+	{
+		// the incubator module is resolved only on request, without it the vectorized class can't be loaded
+		if (vectorized && ModuleLayer.boot().findModule(kVectorModule).isPresent()) {
+			try {
+				return (LevelBits)Class.forName(kVectorClassName).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				e.printStackTrace();
+			} catch (LinkageError e) {
+				e.printStackTrace();
+			}
+		}
+		return SCALAR;
+	}
+	
+	/**
+	 * Checks whether a level has all its cells occupied
+	 * @param bits Bitsets of levels
+	 * @param offset Index of the level's first word in bits
+	 * @param full Bitset of a full level
+	 * @param words Number of words per level
+	 * @return true if level equals full one
+	 */
+	abstract boolean isFull(long[] bits, int offset, long[] full, int words);
+	
+	/**
+	 * Narrowest level, in words, for which the implementation is faster than the scalar one
+	 * @return number of words
+	 */
+	abstract int getMinWords();
+	
+	/**
+	 * Name of implementation, for diagnostics
+	 * @return name
+	 */
+	abstract String getName();
+}
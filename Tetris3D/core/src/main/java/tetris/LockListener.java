@@ -0,0 +1,25 @@
+package tetris;
+
+/**
+ * Receives every placement of a falling block from GameLogic, together with its outcome. Called on
+ * the thread running the logic.
+ *
+ */
+public interface LockListener {
+	
+	/**
+	 * Called when the falling block has landed, before its elements are added to the board
+	 * @param game Game whose board is still in the state before the placement
+	 * @param block Landed block, at its final position
+	 */
+	void blockLocking(GameLogic game, Block block);
+	
+	/**
+	 * Called after the block's elements were added and full levels removed. If the block didn't
+	 * fit into the well the game is over and nothing was removed.
+	 * @param game Game after the placement
+	 * @param reducedLevels Number of levels removed by the placement
+	 * @param points Points scored by the placement
+	 */
+	void blockLocked(GameLogic game, int reducedLevels, int points);
+}
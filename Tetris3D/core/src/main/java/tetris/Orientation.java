@@ -0,0 +1,118 @@
+package tetris;
+
+import java.util.Arrays;
+
+/**
+ * Orientation enumerates the 24 rotations of a cube, so that a rotated Block can be described by
+ * its shape and a small number instead of its elements. Orientation 0 is the shape as defined in
+ * BlockFactory, rotations are numbered in the order they are reached from it.
+ *
+ */
+public final class Orientation {
+	
+	/**
+	 * Number of distinct orientations
+	 */
+	public static final int COUNT = 24;
+	
+	// rotation matrices, row major
+	private static final int[][] matrices = new int[COUNT][];
+	private static final int[] xRotated = new int[COUNT];
+	private static final int[] yRotated = new int[COUNT];
+	private static final int[] zRotated = new int[COUNT];
+	
+	// rotations performed by Block: X (x, y, z) -> (x, z, -y), Y -> (-z, y, x), Z -> (y, -x, z)
+	private static final int[] X = {1, 0, 0,  0, 0, 1,  0, -1, 0};
+	private static final int[] Y = {0, 0, -1,  0, 1, 0,  1, 0, 0};
+	private static final int[] Z = {0, 1, 0,  -1, 0, 0,  0, 0, 1};
+	
+	static {
+		// breadth first search over rotations reachable from identity, each new one is appended
+		matrices[0] = new int[] {1, 0, 0,  0, 1, 0,  0, 0, 1};
+		for (int i = 0; i < COUNT; i++) {
+			xRotated[i] = indexOf(multiply(X, matrices[i]));
+			yRotated[i] = indexOf(multiply(Y, matrices[i]));
+			zRotated[i] = indexOf(multiply(Z, matrices[i]));
+		}
+	}
+	
+	private Orientation() {
+	}
+	
+	/**
+	 * Orientation after rotating along X axis, the same way Block.xRotatedBlock() does
+	 * @param orientation Current orientation
+	 * @return Rotated orientation
+	 */
+	public static int xRotated(int orientation)
+	{
+		return xRotated[orientation];
+	}
+	
+	/**
+	 * Orientation after rotating along Y axis, the same way Block.yRotatedBlock() does
+	 * @param orientation Current orientation
+	 * @return Rotated orientation
+	 */
+	public static int yRotated(int orientation)
+	{
+		return yRotated[orientation];
+	}
+	
+	/**
+	 * Orientation after rotating along Z axis, the same way Block.zRotatedBlock() does
+	 * @param orientation Current orientation
+	 * @return Rotated orientation
+	 */
+	public static int zRotated(int orientation)
+	{
+		return zRotated[orientation];
+	}
+	
+	/**
+	 * Transforms location of an element within a block of given size
+	 * @param orientation Applied orientation
+	 * @param size Size of block
+	 * @param location Location (x, y, z) within unrotated block, replaced with the rotated one
+	 */
+	public static void rotate(int orientation, int size, int[] location)
+	{
+		int[] matrix = matrices[orientation];
+		
+		// rotate around the block's center, coordinates are doubled to stay integer
+		int x = 2*location[0] - (size - 1);
+		int y = 2*location[1] - (size - 1);
+		int z = 2*location[2] - (size - 1);
+		for (int row = 0; row < 3; row++) {
+			int value = matrix[3*row]*x + matrix[3*row + 1]*y + matrix[3*row + 2]*z;
+			location[row] = (value + size - 1)/2;
+		}
+	}
+	
+	private static int[] multiply(int[] a, int[] b)
+	{
+		int[] result = new int[9];
+		for (int row = 0; row < 3; row++) {
+			for (int column = 0; column < 3; column++) {
+				for (int i = 0; i < 3; i++) {
+					result[3*row + column] += a[3*row + i]*b[3*i + column];
+				}
+			}
+		}
+		return result;
+	}
+	
+	private static int indexOf(int[] matrix)
+	{
+		for (int i = 0; i < COUNT; i++) {
+			if (matrices[i] == null) {
+				matrices[i] = matrix;
+				return i;
+			}
+			if (Arrays.equals(matrices[i], matrix)) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("More than " + COUNT + " rotations");
+	}
+}
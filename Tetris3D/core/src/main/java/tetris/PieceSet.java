@@ -0,0 +1,138 @@
+package tetris;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A set of block shapes loaded at runtime instead of BlockFactory's built-in ones, see
+ * PolycubeGenerator. Every shape is stored in each of Orientation.COUNT orientations, rotated
+ * within a cube of the shape's size as Orientation.rotate() does it, so loading doesn't rotate
+ * anything.
+ * 
+ * File layout: magic bytes "T3DP" (int), format version (byte) and number of shapes (int), then
+ * for every shape its size and number of elements (bytes), followed by the elements' x, y and z
+ * (bytes) in every orientation in turn. Values are big endian.
+ *
+ */
+public final class PieceSet {
+	
+	public static final int MAGIC = 0x54334450; // "T3DP"
+	public static final int VERSION = 1;
+	
+	private final int[] sizes;
+	// elements as x, y, z triples, [shape][orientation]
+	private final byte[][][] elements;
+	
+	/**
+	 * Designated constructor
+	 * @param sizes Size of the cube holding every shape
+	 * @param elements Elements of every shape in every orientation, as x, y, z triples
+	 */
+	PieceSet(int[] sizes, byte[][][] elements)
+	{
+		this.sizes = sizes;
+		this.elements = elements;
+	}
+	
+	/**
+	 * Reads a piece set file
+	 * @param path Path to file
+	 * @return Read set
+	 * @throws IOException if file can't be read or is malformed
+	 */
+	public static PieceSet read(Path path) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+		try {
+			if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+				throw new IOException("Not a piece set: " + path);
+			}
+			int shapeCount = in.readInt();
+			if (shapeCount <= 0) {
+				throw new IOException("No shapes in " + path);
+			}
+			
+			int[] sizes = new int[shapeCount];
+			byte[][][] elements = new byte[shapeCount][Orientation.COUNT][];
+			for (int shape = 0; shape < shapeCount; shape++) {
+				sizes[shape] = in.readUnsignedByte();
+				int count = in.readUnsignedByte();
+				for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+					elements[shape][orientation] = new byte[3*count];
+					in.readFully(elements[shape][orientation]);
+					for (byte coordinate : elements[shape][orientation]) {
+						if (coordinate < 0 || coordinate >= sizes[shape]) {
+							throw new IOException("Element outside of shape " + shape + " in " + path);
+						}
+					}
+				}
+			}
+			return new PieceSet(sizes, elements);
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Writes the set to a file
+	 * @param path Path to file, it's overwritten if it exists
+	 * @throws IOException if file can't be written
+	 */
+	public void write(Path path) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(sizes.length);
+			for (int shape = 0; shape < sizes.length; shape++) {
+				out.writeByte(sizes[shape]);
+				out.writeByte(elements[shape][0].length/3);
+				for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+					out.write(elements[shape][orientation]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Number of shapes in the set
+	 * @return shape count
+	 */
+	public int getShapeCount() {
+		return sizes.length;
+	}
+	
+	/**
+	 * Size of the cube holding a shape in any orientation
+	 * @param shape Shape id
+	 * @return Edge of the cube
+	 */
+	public int getSize(int shape) {
+		return sizes[shape];
+	}
+	
+	/**
+	 * Creates template of a shape in given orientation, as BlockFactory stores them
+	 * @param shape Shape id
+	 * @param orientation One of Orientation.COUNT orientations
+	 * @return Cube of the shape's size, 1 for elements and 0 for empty cells
+	 */
+	char[][][] template(int shape, int orientation)
+	{
+		int size = sizes[shape];
+		char[][][] template = new char[size][size][size];
+		byte[] shapeElements = elements[shape][orientation];
+		for (int i = 0; i < shapeElements.length; i += 3) {
+			template[shapeElements[i]][shapeElements[i + 1]][shapeElements[i + 2]] = 1;
+		}
+		return template;
+	}
+}
@@ -0,0 +1,270 @@
+package tetris;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Enumerates all polycubes of up to a given size which are distinct under the 24 rotations of
+ * Orientation (mirror images are distinct shapes, as blocks can't be mirrored in the game), and
+ * writes them as a PieceSet.
+ * 
+ * Shapes of size n are grown from shapes of size n - 1 by adding an element next to any of theirs.
+ * Every grown shape is reduced to its canonical key: its elements' coordinates, shifted to start at
+ * zero, are packed into 9 bits each, sorted and concatenated into a long, and the smallest such long
+ * over all the rotations is the key. Shapes are deduplicated by their keys. Parents are split among
+ * all the processors, each collecting keys on its own, and the keys are merged at the end of each size.
+ *
+ */
+public final class PolycubeGenerator {
+	
+	/**
+	 * Largest supported size, elements of bigger shapes don't fit into a long key
+	 */
+	public static final int MAX_SIZE = 7;
+	
+	private static final int kCoordinateBits = 3;
+	private static final int kElementBits = 3*kCoordinateBits;
+	private static final int kCoordinateMask = (1 << kCoordinateBits) - 1;
+	private static final int kElementMask = (1 << kElementBits) - 1;
+	// number of parents a task grows, a few tasks per processor balance the load
+	private static final int kTasksPerThread = 8;
+	
+	private static final int[][] NEIGHBOURS = {
+		{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}
+	};
+	
+	private PolycubeGenerator() {
+	}
+	
+	/**
+	 * Generates a piece set file
+	 * @param args Largest size of shapes, path to written file, optionally smallest size of shapes
+	 * (1 by default) and number of threads (all processors by default)
+	 * @throws Exception if generation or writing fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxSize = Integer.parseInt(args[0]);
+		int minSize = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		
+		long start = System.nanoTime();
+		long[][] keys = generate(maxSize, threads);
+		long nanos = System.nanoTime() - start;
+		
+		for (int size = 1; size <= maxSize; size++) {
+			System.out.println(keys[size].length + " shapes of size " + size);
+		}
+		PieceSet pieces = toPieceSet(keys, minSize, maxSize);
+		pieces.write(Paths.get(args[1]));
+		System.out.printf("%d shapes written, generated in %.1f ms on %d threads%n", pieces.getShapeCount(), nanos/1e6, threads);
+	}
+	
+	/**
+	 * Generates canonical keys of all shapes up to given size
+	 * @param maxSize Largest size of shapes, up to MAX_SIZE
+	 * @param threads Number of threads growing shapes
+	 * @return Sorted keys of shapes, indexed by size
+	 * @throws Exception if a thread fails
+	 */
+	public static long[][] generate(int maxSize, int threads) throws Exception
+	{
+		if (maxSize < 1 || maxSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Sizes from 1 to " + MAX_SIZE + " are supported");
+		}
+		
+		long[][] keys = new long[maxSize + 1][];
+		keys[0] = new long[0];
+		keys[1] = new long[] {0}; // single element at the origin
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int size = 2; size <= maxSize; size++) {
+				final long[] parents = keys[size - 1];
+				final int parentSize = size - 1;
+				int taskCount = Math.min(parents.length, threads*kTasksPerThread);
+				
+				List<Future<Set<Long>>> results = new ArrayList<Future<Set<Long>>>();
+				for (int task = 0; task < taskCount; task++) {
+					final int from = (int)((long)parents.length*task/taskCount);
+					final int to = (int)((long)parents.length*(task + 1)/taskCount);
+					results.add(executor.submit(new Callable<Set<Long>>() {
+						@Override
+						public Set<Long> call() {
+							return grow(parents, from, to, parentSize);
+						}
+					}));
+				}
+				
+				Set<Long> merged = new HashSet<Long>();
+				for (Future<Set<Long>> result : results) {
+					merged.addAll(result.get());
+				}
+				long[] sorted = new long[merged.size()];
+				int i = 0;
+				for (Long key : merged) {
+					sorted[i++] = key;
+				}
+				Arrays.sort(sorted); // the order of shapes doesn't depend on scheduling
+				keys[size] = sorted;
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return keys;
+	}
+	
+	/**
+	 * Creates piece set of generated shapes, each in the orientation of its key
+	 * @param keys Keys of shapes indexed by size, as returned by generate()
+	 * @param minSize Smallest size of included shapes
+	 * @param maxSize Largest size of included shapes
+	 * @return Piece set
+	 */
+	public static PieceSet toPieceSet(long[][] keys, int minSize, int maxSize)
+	{
+		int count = 0;
+		for (int size = minSize; size <= maxSize; size++) {
+			count += keys[size].length;
+		}
+		
+		int[] sizes = new int[count];
+		byte[][][] elements = new byte[count][Orientation.COUNT][];
+		int[] location = new int[3];
+		int shape = 0;
+		for (int elementCount = minSize; elementCount <= maxSize; elementCount++) {
+			for (long key : keys[elementCount]) {
+				int[][] cells = decode(key, elementCount);
+				int size = 1;
+				for (int[] cell : cells) {
+					size = Math.max(size, Math.max(cell[0], Math.max(cell[1], cell[2])) + 1);
+				}
+				sizes[shape] = size;
+				
+				for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+					byte[] rotated = new byte[3*cells.length];
+					for (int i = 0; i < cells.length; i++) {
+						System.arraycopy(cells[i], 0, location, 0, 3);
+						Orientation.rotate(orientation, size, location);
+						rotated[3*i] = (byte)location[0];
+						rotated[3*i + 1] = (byte)location[1];
+						rotated[3*i + 2] = (byte)location[2];
+					}
+					elements[shape][orientation] = rotated;
+				}
+				shape++;
+			}
+		}
+		return new PieceSet(sizes, elements);
+	}
+	
+	private static Set<Long> grow(long[] parents, int from, int to, int parentSize)
+	{
+		Set<Long> children = new HashSet<Long>();
+		int size = parentSize + 1;
+		int[][] cells = new int[size][3];
+		int[][] scratch = new int[size][3];
+		int[] packed = new int[size];
+		
+		for (int p = from; p < to; p++) {
+			int[][] parent = decode(parents[p], parentSize);
+			for (int[] element : parent) {
+				for (int[] offset : NEIGHBOURS) {
+					int x = element[0] + offset[0];
+					int y = element[1] + offset[1];
+					int z = element[2] + offset[2];
+					if (contains(parent, x, y, z)) {
+						continue;
+					}
+					// canonicalKey() shifts the cells, they are copied for every child
+					for (int i = 0; i < parentSize; i++) {
+						System.arraycopy(parent[i], 0, cells[i], 0, 3);
+					}
+					cells[parentSize][0] = x;
+					cells[parentSize][1] = y;
+					cells[parentSize][2] = z;
+					children.add(canonicalKey(cells, scratch, packed));
+				}
+			}
+		}
+		return children;
+	}
+	
+	private static boolean contains(int[][] cells, int x, int y, int z)
+	{
+		for (int[] cell : cells) {
+			if (cell[0] == x && cell[1] == y && cell[2] == z) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Smallest key of a shape over all the rotations
+	 * @param cells Elements of the shape, any translation, they are shifted to start at zero
+	 * @param scratch Array of the same dimensions as cells
+	 * @param packed Array of cells.length ints
+	 * @return Canonical key
+	 */
+	static long canonicalKey(int[][] cells, int[][] scratch, int[] packed)
+	{
+		int size = cells.length;
+		normalize(cells);
+		
+		long best = Long.MAX_VALUE;
+		for (int orientation = 0; orientation < Orientation.COUNT; orientation++) {
+			for (int i = 0; i < size; i++) {
+				System.arraycopy(cells[i], 0, scratch[i], 0, 3);
+				Orientation.rotate(orientation, size, scratch[i]);
+			}
+			normalize(scratch);
+			
+			for (int i = 0; i < size; i++) {
+				packed[i] = (scratch[i][0] << 2*kCoordinateBits) | (scratch[i][1] << kCoordinateBits) | scratch[i][2];
+			}
+			Arrays.sort(packed);
+			long key = 0;
+			for (int i = 0; i < size; i++) {
+				key = (key << kElementBits) | packed[i];
+			}
+			best = Math.min(best, key);
+		}
+		return best;
+	}
+	
+	private static void normalize(int[][] cells)
+	{
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		for (int[] cell : cells) {
+			minX = Math.min(minX, cell[0]);
+			minY = Math.min(minY, cell[1]);
+			minZ = Math.min(minZ, cell[2]);
+		}
+		for (int[] cell : cells) {
+			cell[0] -= minX;
+			cell[1] -= minY;
+			cell[2] -= minZ;
+		}
+	}
+	
+	private static int[][] decode(long key, int size)
+	{
+		int[][] cells = new int[size][3];
+		for (int i = size - 1; i >= 0; i--) {
+			int element = (int)(key & kElementMask);
+			cells[i][0] = element >>> 2*kCoordinateBits;
+			cells[i][1] = (element >>> kCoordinateBits) & kCoordinateMask;
+			cells[i][2] = element & kCoordinateMask;
+			key >>>= kElementBits;
+		}
+		return cells;
+	}
+}
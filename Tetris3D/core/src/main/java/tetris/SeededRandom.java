@@ -0,0 +1,113 @@
+package tetris;
+
+/**
+ * Small, deterministic pseudo random generator (xorshift64*) whose whole state is a single long.
+ * Unlike java.util.Random its state can be read and restored, which replays and snapshots rely on.
+ *
+ */
+public class SeededRandom {
+	
+	private static final long kMultiplier = 0x2545F4914F6CDD1DL;
+	
+	private long state;
+	
+	/**
+	 * Creates generator from a seed, equal seeds produce equal sequences
+	 * @param seed Any value
+	 */
+	public SeededRandom(long seed)
+	{
+		setSeed(seed);
+	}
+	
+	/**
+	 * Resets the generator as if it was created with given seed
+	 * @param seed Any value
+	 */
+	public void setSeed(long seed)
+	{
+		state = stateForSeed(seed);
+	}
+	
+	/**
+	 * Returns next pseudo random long
+	 * @return Next value
+	 */
+	public long nextLong()
+	{
+		state = nextState(state);
+		return state * kMultiplier;
+	}
+	
+	/**
+	 * Returns pseudo random int from range [0, bound)
+	 * @param bound Upper bound, must be positive
+	 * @return Next value
+	 */
+	public int nextInt(int bound)
+	{
+		state = nextState(state);
+		return intForState(state, bound);
+	}
+	
+	/**
+	 * State of generator created from a seed, for callers keeping the state themselves
+	 * @param seed Any value
+	 * @return State the generator starts from
+	 */
+	static long stateForSeed(long seed)
+	{
+		// scramble the seed (splitmix64 finalizer), so that close seeds give unrelated sequences
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		
+		return z == 0 ? 0x9E3779B97F4A7C15L : z;
+	}
+	
+	/**
+	 * Advances a state by one value
+	 * @param state Current state
+	 * @return Next state
+	 */
+	static long nextState(long state)
+	{
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		return state;
+	}
+	
+	/**
+	 * Value of nextInt() which advanced the generator to given state
+	 * @param state State after advancing
+	 * @param bound Upper bound, must be positive
+	 * @return Value from range [0, bound)
+	 */
+	static int intForState(long state, int bound)
+	{
+		return (int)((((state * kMultiplier) >>> 32) * bound) >>> 32);
+	}
+	
+	/**
+	 * Getter for generator's state
+	 * @return Current state, never 0
+	 */
+	public long getState()
+	{
+		return state;
+	}
+	
+	/**
+	 * Restores state previously returned by getState()
+	 * @param state Restored state, must not be 0
+	 */
+	public void setState(long state)
+	{
+		if (state == 0) {
+			throw new IllegalArgumentException("State of generator must not be 0");
+		}
+		this.state = state;
+	}
+}
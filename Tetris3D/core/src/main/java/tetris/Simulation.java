@@ -0,0 +1,225 @@
+package tetris;
+
+import java.util.concurrent.locks.LockSupport;
+
+import tetris.metrics.FrameProfiler;
+import tetris.metrics.GameStats;
+import tetris.spectator.SpectatorEncoder;
+
+/**
+ * Runs GameLogic on its own thread at a fixed rate, independent of rendering frame rate.
+ * Time is accumulated with System.nanoTime() and consumed in fixed steps, after every step
+ * a GameSnapshot is published through SnapshotExchange for rendering and other consumers.
+ *
+ */
+public class Simulation implements Runnable {
+	
+	/**
+	 * Number of logic ticks per second
+	 */
+	public static final int TICKS_PER_SECOND = 60;
+	public static final long NANOS_PER_TICK = 1000000000L / TICKS_PER_SECOND;
+	
+	// If simulation falls behind by more than that many ticks, remaining time is dropped
+	private static final int kMaxCatchUpTicks = 5;
+	// Number of threads that may hold a snapshot at once (rendering, spectating, metrics...)
+	private static final int kMaxSnapshotReaders = 4;
+	
+	private final GameLogic logic;
+	
+	private final SnapshotExchange snapshots;
+	private volatile boolean newGameRequested;
+	private volatile boolean paused;
+	// set on resume, keys may have been released while paused without the logic seeing it
+	private volatile boolean heldInputsResetRequested;
+	private volatile boolean running;
+	private FrameProfiler profiler;
+	private GameStats stats;
+	private SpectatorEncoder spectators;
+	private Thread thread;
+	
+	/**
+	 * Designated constructor
+	 * @param logic Simulated game logic, must not be accessed by other threads afterwards
+	 */
+	public Simulation(GameLogic logic)
+	{
+		this.logic = logic;
+		this.snapshots = new SnapshotExchange(logic.getBoard().getWidth(), logic.getBoard().getDepth(), logic.getBoard().getHeight(),
+				kMaxSnapshotReaders);
+		this.snapshots.publish(logic, false);
+	}
+	
+	/**
+	 * Sets profiler recording duration of ticks. Must be called before start().
+	 * @param profiler Profiler or null
+	 */
+	public void setProfiler(FrameProfiler profiler)
+	{
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * Sets statistics updated after every tick. Must be called before start().
+	 * @param stats Statistics or null
+	 */
+	public void setStats(GameStats stats)
+	{
+		this.stats = stats;
+	}
+	
+	/**
+	 * Sets encoder streaming every tick to spectators. Must be called before start().
+	 * @param spectators Encoder, already set as board listener of the logic, or null
+	 */
+	public void setSpectators(SpectatorEncoder spectators)
+	{
+		this.spectators = spectators;
+	}
+	
+	/**
+	 * Starts simulation thread
+	 */
+	public void start()
+	{
+		running = true;
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops simulation thread and waits for it to finish
+	 */
+	public void stop()
+	{
+		running = false;
+		
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public void run()
+	{
+		long previousTime = System.nanoTime();
+		long accumulator = 0;
+		
+		while (running) {
+			long now = System.nanoTime();
+			accumulator += now - previousTime;
+			previousTime = now;
+			
+			if (paused && !newGameRequested) {
+				accumulator = 0; // don't catch up on the time spent paused
+			}
+			
+			int ticks = 0;
+			while (accumulator >= NANOS_PER_TICK && ticks < kMaxCatchUpTicks) {
+				step();
+				accumulator -= NANOS_PER_TICK;
+				ticks++;
+			}
+			
+			if (accumulator >= NANOS_PER_TICK) {
+				accumulator = 0; // too far behind (e.g. after a stall), don't try to catch up
+			}
+			
+			LockSupport.parkNanos(NANOS_PER_TICK - accumulator);
+		}
+	}
+	
+	private void step()
+	{
+		if (newGameRequested) {
+			logic.newGame();
+			snapshots.publish(logic, false);
+			if (spectators != null) {
+				spectators.tickCompleted(logic);
+			}
+			newGameRequested = false;
+			return;
+		}
+		
+		if (heldInputsResetRequested) {
+			heldInputsResetRequested = false;
+			logic.releaseHeldInputs();
+		}
+		
+		int blockCount = logic.getBlockCount();
+		int reducedLevelCount = logic.getReducedLevelCount();
+		
+		long startTime = System.nanoTime();
+		logic.tick(startTime);
+		if (profiler != null) {
+			profiler.record(FrameProfiler.Phase.Tick, startTime);
+		}
+		
+		if (stats != null) {
+			Board board = logic.getBoard();
+			// every new block means the previous one was locked
+			stats.tickCompleted(logic.getBlockCount() - blockCount, logic.getReducedLevelCount() - reducedLevelCount,
+					(double)board.getElementCount() / (board.getWidth()*board.getDepth()*board.getHeight()));
+		}
+		
+		snapshots.publish(logic, true);
+		if (spectators != null) {
+			spectators.tickCompleted(logic);
+		}
+	}
+	
+	/**
+	 * Passes user's input to be handled during next tick. Must be called from a single thread.
+	 * @param input Performed input
+	 * @param pressed true if key was pressed, false if released
+	 * @param nanoTime Time of event, as returned by System.nanoTime()
+	 * @return false if too many events are pending and this one was dropped
+	 */
+	public boolean postInput(Input input, boolean pressed, long nanoTime)
+	{
+		return logic.getInputQueue().offer(input, pressed, nanoTime);
+	}
+	
+	/**
+	 * Asks simulation to start a new game during next tick
+	 */
+	public void requestNewGame()
+	{
+		newGameRequested = true;
+	}
+	
+	/**
+	 * Stops or resumes ticking of the game. Held keys stop auto-repeating on resume, they have to be
+	 * pressed again.
+	 * @param paused If true no ticks are performed until resumed
+	 */
+	public void setPaused(boolean paused)
+	{
+		if (this.paused && !paused) {
+			heldInputsResetRequested = true;
+		}
+		this.paused = paused;
+	}
+	
+	/**
+	 * Whether new game was requested but not started yet. Check it before acquiring snapshot, once
+	 * it's false the snapshot already reflects the new game.
+	 * @return true if new game is pending
+	 */
+	public boolean isNewGameRequested()
+	{
+		return newGameRequested;
+	}
+	
+	/**
+	 * Returns the exchange through which snapshots of the game are published
+	 * @return Snapshot exchange
+	 */
+	public SnapshotExchange getSnapshots()
+	{
+		return snapshots;
+	}
+}
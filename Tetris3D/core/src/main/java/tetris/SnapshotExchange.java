@@ -0,0 +1,93 @@
+package tetris;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free exchange of GameSnapshots between a single producer (simulation thread) and any number
+ * of consumers that are only interested in the latest state. It's a triple buffer generalized for
+ * multiple readers: with at most N readers holding a snapshot at once, N + 2 snapshots are allocated
+ * up front, so the producer can always find one that is neither the latest nor being read.
+ *
+ */
+public class SnapshotExchange {
+
+	private final GameSnapshot[] snapshots;
+	// number of consumers currently holding each of snapshots
+	private final AtomicIntegerArray readers;
+	
+	private volatile int latest = -1;
+	private int writing = -1; // accessed by producer only
+	
+	/**
+	 * Designated constructor
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 * @param maxReaders Maximum number of consumers holding a snapshot at the same time
+	 */
+	public SnapshotExchange(int width, int depth, int height, int maxReaders)
+	{
+		snapshots = new GameSnapshot[maxReaders + 2];
+		readers = new AtomicIntegerArray(snapshots.length);
+		
+		for (int i = 0; i < snapshots.length; i++) {
+			snapshots[i] = new GameSnapshot(width, depth, height, i);
+		}
+	}
+	
+	/**
+	 * Producer only. Copies state of logic into a free snapshot and makes it the latest one.
+	 * @param logic Game logic to take snapshot of
+	 * @param continuous If false the previous snapshot is not used for interpolation (e.g. after new game)
+	 */
+	public void publish(GameLogic logic, boolean continuous)
+	{
+		int current = latest;
+		GameSnapshot previous = continuous && current >= 0 ? snapshots[current] : null;
+		
+		writing = -1;
+		for (int i = 0; i < snapshots.length; i++) {
+			if (i != current && readers.get(i) == 0) {
+				writing = i;
+				break;
+			}
+		}
+		
+		if (writing < 0) {
+			throw new IllegalStateException("More readers hold a snapshot than the exchange was created for");
+		}
+		
+		snapshots[writing].copyFrom(logic, previous, System.nanoTime());
+		latest = writing;
+	}
+	
+	/**
+	 * Consumer side. Returns the latest snapshot, which stays valid until it's released. 
+	 * @return Latest snapshot or null if nothing was published yet
+	 */
+	public GameSnapshot acquire()
+	{
+		while (true) {
+			int index = latest;
+			if (index < 0) {
+				return null;
+			}
+			
+			readers.incrementAndGet(index);
+			// producer never writes into the latest snapshot, so if it's still the latest one it's safe
+			if (index == latest) {
+				return snapshots[index];
+			}
+			readers.decrementAndGet(index);
+		}
+	}
+	
+	/**
+	 * Consumer side. Releases a snapshot returned by acquire(), it must not be accessed afterwards.
+	 * @param snapshot Released snapshot
+	 */
+	public void release(GameSnapshot snapshot)
+	{
+		readers.decrementAndGet(snapshot.slot);
+	}
+}
@@ -0,0 +1,50 @@
+package tetris;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorized LevelBits, compares as many words at once as the preferred vector shape of the CPU holds.
+ * Requires the incubating jdk.incubator.vector module, it's loaded by LevelBits.create() only when
+ * the module is present.
+ *
+ */
+final class VectorLevelBits extends LevelBits {
+	
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+	
+	@Override
+	boolean isFull(long[] bits, int offset, long[] full, int words)
+	{
+		int i = 0;
+		for (int bound = SPECIES.loopBound(words); i < bound; i += SPECIES.length()) {
+			LongVector level = LongVector.fromArray(SPECIES, bits, offset + i);
+			if (level.compare(VectorOperators.NE, LongVector.fromArray(SPECIES, full, i)).anyTrue()) {
+				return false;
+			}
+		}
+		
+		// levels narrower than a vector, or their last words
+		for (; i < words; i++) {
+			if (bits[offset + i] != full[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	int getMinWords()
+	{
+		// LevelBitsBenchmark shows gains from 64x64 levels (8 vectors of 512 bits), narrower ones
+		// spend more on setting up vectors than they save
+		return 4*SPECIES.length();
+	}
+	
+	@Override
+	String getName()
+	{
+		return "vector " + SPECIES.vectorBitSize() + " bit";
+	}
+}
@@ -0,0 +1,22 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted when a new block appears
+ *
+ */
+@Name("tetris.BlockSpawn")
+@Label("Block Spawn")
+@Category("Tetris")
+public class BlockSpawnEvent extends Event {
+	
+	@Label("Block Number")
+	public int blockNumber;
+	
+	@Label("Block Size")
+	public int blockSize;
+}
@@ -0,0 +1,19 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering a single rendered frame
+ *
+ */
+@Name("tetris.Frame")
+@Label("Frame")
+@Category("Tetris")
+public class FrameEvent extends Event {
+	
+	@Label("Rendered Elements")
+	public int elements;
+}
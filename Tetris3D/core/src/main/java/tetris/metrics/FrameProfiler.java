@@ -0,0 +1,139 @@
+package tetris.metrics;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Low-overhead timing of game loop phases. Each phase has its own Histogram, so phases may be
+ * recorded from different threads (e.g. logic ticks from the simulation thread) without locking.
+ * Reports are appended to a log file periodically and on demand.
+ *
+ */
+public class FrameProfiler {
+	
+	/**
+	 * Measured phases of the game loop
+	 */
+	public enum Phase {
+		Input("input"),
+		Tick("logic.tick"),
+		Render("render"),
+		Update("Display.update"),
+		Frame("frame");
+		
+		private final String label;
+		
+		private Phase(String label)
+		{
+			this.label = label;
+		}
+	}
+	
+	private final Histogram[] histograms;
+	private Timer timer;
+	private String fileName;
+	
+	/**
+	 * Designated constructor
+	 */
+	public FrameProfiler()
+	{
+		Phase[] phases = Phase.values();
+		histograms = new Histogram[phases.length];
+		
+		for (int i = 0; i < phases.length; i++) {
+			histograms[i] = new Histogram(phases[i].label);
+		}
+	}
+	
+	/**
+	 * Records duration of a phase that started at given time and ends now
+	 * @param phase Measured phase
+	 * @param startTime Start of phase, as returned by System.nanoTime()
+	 * @return Current time, which can be passed as start of the next phase
+	 */
+	public long record(Phase phase, long startTime)
+	{
+		long now = System.nanoTime();
+		histograms[phase.ordinal()].record(now - startTime);
+		return now;
+	}
+	
+	/**
+	 * Getter for histogram of a phase
+	 * @param phase Phase
+	 * @return Histogram of phase's durations
+	 */
+	public Histogram histogramForPhase(Phase phase)
+	{
+		return histograms[phase.ordinal()];
+	}
+	
+	/**
+	 * Formats p50, p99 and max of all the phases
+	 * @return Multi-line report
+	 */
+	public String report()
+	{
+		StringBuilder report = new StringBuilder();
+		for (Histogram histogram : histograms) {
+			report.append(histogram.summary()).append("\n");
+		}
+		return report.toString();
+	}
+	
+	/**
+	 * Starts appending reports to a log file periodically. Histograms are reset after every report,
+	 * so each one covers a single interval. Writing happens on a background thread.
+	 * @param fileName Name of log file
+	 * @param intervalMillis Interval between reports in milliseconds
+	 */
+	public void startLogging(String fileName, long intervalMillis)
+	{
+		this.fileName = fileName;
+		timer = new Timer("FrameProfiler", true);
+		timer.scheduleAtFixedRate(new TimerTask() {
+			@Override
+			public void run() {
+				writeReport();
+			}
+		}, intervalMillis, intervalMillis);
+	}
+	
+	/**
+	 * Appends a report of the current interval to the log file right away, on the logging thread,
+	 * and starts a new interval. Does nothing unless logging was started.
+	 */
+	public void writeReportLater()
+	{
+		if (timer == null) {
+			return;
+		}
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				writeReport();
+			}
+		}, 0);
+	}
+	
+	/**
+	 * Stops periodic logging started with startLogging()
+	 */
+	public void stopLogging()
+	{
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+	
+	private void writeReport()
+	{
+		ReportFile.append(fileName, "Frame timing", report());
+		
+		for (Histogram histogram : histograms) {
+			histogram.reset();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package tetris.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.EventType;
+
+/**
+ * Counters of game and rendering activity, published as a JMX MBean. Counters are updated
+ * lock-free from the simulation and rendering threads, rates are sampled once per second
+ * on a background thread.
+ *
+ */
+public class GameStats implements GameStatsMBean {
+	
+	/**
+	 * Name under which the MBean is registered
+	 */
+	public static final String OBJECT_NAME = "tetris:type=GameStats";
+	
+	private static final long kSampleIntervalMillis = 1000;
+	private static final EventType kFrameEventType = EventType.getEventType(FrameEvent.class);
+	
+	private final AtomicLong ticks = new AtomicLong();
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong piecesLocked = new AtomicLong();
+	private final AtomicLong levelsCleared = new AtomicLong();
+	private volatile double boardFillRatio;
+	
+	private volatile double ticksPerSecond;
+	private volatile double framesPerSecond;
+	private volatile double allocationRate = -1;
+	
+	// values at previous sample, accessed by sampling thread only
+	private long sampledTicks;
+	private long sampledFrames;
+	private long sampledAllocatedBytes = -1;
+	private long sampleTime;
+	
+	private Timer timer;
+	
+	// event of the frame being rendered, created only while Flight Recorder records frames
+	private FrameEvent frameEvent;
+	
+	/**
+	 * Registers the MBean in platform MBean server and starts sampling rates
+	 */
+	public void register()
+	{
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		
+		sampleTime = System.nanoTime();
+		timer = new Timer("GameStats", true);
+		timer.scheduleAtFixedRate(new TimerTask() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, kSampleIntervalMillis, kSampleIntervalMillis);
+	}
+	
+	/**
+	 * Unregisters the MBean and stops sampling
+	 */
+	public void unregister()
+	{
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+		
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Counts a single logic tick
+	 * @param lockedPieces Number of blocks locked during the tick
+	 * @param clearedLevels Number of levels cleared during the tick
+	 * @param fillRatio Fraction of occupied board cells after the tick
+	 */
+	public void tickCompleted(int lockedPieces, int clearedLevels, double fillRatio)
+	{
+		ticks.incrementAndGet();
+		if (lockedPieces != 0) {
+			piecesLocked.addAndGet(lockedPieces);
+		}
+		if (clearedLevels != 0) {
+			levelsCleared.addAndGet(clearedLevels);
+		}
+		boardFillRatio = fillRatio;
+	}
+	
+	/**
+	 * Starts timing a frame for Flight Recorder, rendering thread only. Frames are rendered without
+	 * allocating anything unless a recording is running.
+	 */
+	public void frameStarted()
+	{
+		if (kFrameEventType.isEnabled()) {
+			frameEvent = new FrameEvent();
+			frameEvent.begin();
+		}
+	}
+	
+	/**
+	 * Counts a single rendered frame, rendering thread only
+	 * @param elements Number of rendered elements
+	 */
+	public void frameCompleted(int elements)
+	{
+		frames.incrementAndGet();
+		if (frameEvent != null) {
+			frameEvent.elements = elements;
+			frameEvent.commit();
+			frameEvent = null;
+		}
+	}
+	
+	private void sample()
+	{
+		long now = System.nanoTime();
+		double seconds = (now - sampleTime) / 1e9;
+		sampleTime = now;
+		
+		long currentTicks = ticks.get();
+		long currentFrames = frames.get();
+		ticksPerSecond = (currentTicks - sampledTicks) / seconds;
+		framesPerSecond = (currentFrames - sampledFrames) / seconds;
+		sampledTicks = currentTicks;
+		sampledFrames = currentFrames;
+		
+		long allocatedBytes = allocatedBytes();
+		if (allocatedBytes >= 0 && sampledAllocatedBytes >= 0) {
+			// bytes of threads that died since previous sample are lost, hence the clamp
+			allocationRate = Math.max(0, allocatedBytes - sampledAllocatedBytes) / seconds;
+		}
+		sampledAllocatedBytes = allocatedBytes;
+	}
+	
+	private static long allocatedBytes()
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		
+		com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean)threads;
+		if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		
+		long total = 0;
+		for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	@Override
+	public double getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	@Override
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	@Override
+	public long getPiecesLocked() {
+		return piecesLocked.get();
+	}
+
+	@Override
+	public long getLevelsCleared() {
+		return levelsCleared.get();
+	}
+
+	@Override
+	public double getBoardFillRatio() {
+		return boardFillRatio;
+	}
+
+	@Override
+	public double getAllocationRate() {
+		return allocationRate;
+	}
+}
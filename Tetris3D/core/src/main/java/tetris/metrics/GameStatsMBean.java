@@ -0,0 +1,38 @@
+package tetris.metrics;
+
+/**
+ * JMX management interface of GameStats, exposes game and rendering telemetry of a running instance
+ *
+ */
+public interface GameStatsMBean {
+	
+	/**
+	 * @return Logic ticks per second, measured over the last second
+	 */
+	double getTicksPerSecond();
+	
+	/**
+	 * @return Rendered frames per second, measured over the last second
+	 */
+	double getFramesPerSecond();
+	
+	/**
+	 * @return Number of blocks locked onto the board since start
+	 */
+	long getPiecesLocked();
+	
+	/**
+	 * @return Number of levels cleared since start
+	 */
+	long getLevelsCleared();
+	
+	/**
+	 * @return Fraction of board's cells that are occupied, from 0 to 1
+	 */
+	double getBoardFillRatio();
+	
+	/**
+	 * @return Bytes allocated per second by all threads, measured over the last second, -1 if unsupported
+	 */
+	double getAllocationRate();
+}
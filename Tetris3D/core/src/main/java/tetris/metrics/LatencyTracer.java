@@ -0,0 +1,68 @@
+package tetris.metrics;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Measures input-to-photon latency. Every traced input carries three timestamps: arrival (when the
+ * key event was read), application (when GameLogic handled it) and presentation (when the first frame
+ * showing its result was submitted). Latencies between them are kept in fixed-memory histograms.
+ *
+ */
+public class LatencyTracer {
+
+	private final Histogram arrivalToApply = new Histogram("input->logic");
+	private final Histogram applyToPresent = new Histogram("logic->frame");
+	private final Histogram arrivalToPresent = new Histogram("input->frame");
+	
+	// writes reports requested with dumpLater(), created on first request
+	private Timer timer;
+	
+	/**
+	 * Records latencies of a single input
+	 * @param arrivalTime Time at which input event was read
+	 * @param applyTime Time at which logic applied the input
+	 * @param presentTime Time at which frame containing the result was submitted
+	 */
+	public void record(long arrivalTime, long applyTime, long presentTime)
+	{
+		arrivalToApply.record(applyTime - arrivalTime);
+		applyToPresent.record(presentTime - applyTime);
+		arrivalToPresent.record(presentTime - arrivalTime);
+	}
+	
+	/**
+	 * Formats percentiles of all the measured latencies
+	 * @return Multi-line report
+	 */
+	public String report()
+	{
+		return arrivalToApply.summary() + "\n" + applyToPresent.summary() + "\n" + arrivalToPresent.summary() + "\n";
+	}
+	
+	/**
+	 * Appends report to a file, errors are printed but otherwise ignored
+	 * @param fileName Name of file
+	 */
+	public void dump(String fileName)
+	{
+		ReportFile.append(fileName, "Input latency", report());
+	}
+	
+	/**
+	 * Appends report to a file on a background thread, e.g. when requested from the render loop
+	 * @param fileName Name of file
+	 */
+	public void dumpLater(final String fileName)
+	{
+		if (timer == null) {
+			timer = new Timer("LatencyTracer", true);
+		}
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				dump(fileName);
+			}
+		}, 0);
+	}
+}
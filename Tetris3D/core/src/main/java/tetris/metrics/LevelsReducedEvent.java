@@ -0,0 +1,19 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering Board.reduceLevels
+ *
+ */
+@Name("tetris.LevelsReduced")
+@Label("Levels Reduced")
+@Category("Tetris")
+public class LevelsReducedEvent extends Event {
+	
+	@Label("Reduced Levels")
+	public int levels;
+}
@@ -0,0 +1,40 @@
+package tetris.metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+
+/**
+ * Appends text reports of the tracers to their log files
+ *
+ */
+final class ReportFile {
+	
+	private ReportFile()
+	{
+	}
+	
+	/**
+	 * Appends a report with a dated title to a file, errors are printed but otherwise ignored.
+	 * Appends from different threads don't interleave.
+	 * @param fileName Name of file
+	 * @param title Title of report, followed by current date
+	 * @param report Multi-line report
+	 */
+	static synchronized void append(String fileName, String title, String report)
+	{
+		PrintWriter out = null;
+		try {
+			out = new PrintWriter(new FileWriter(fileName, true));
+			out.println(title + " at " + new Date());
+			out.print(report);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering a single GameLogic tick
+ *
+ */
+@Name("tetris.Tick")
+@Label("Game Tick")
+@Category("Tetris")
+public class TickEvent extends Event {
+	
+	@Label("Score")
+	public int score;
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains instrumentation of the game: fixed-memory histograms and tracers that
+ * measure latency and timing of the game loop.
+ */
+package tetris.metrics;
@@ -0,0 +1,183 @@
+package tetris.replay;
+
+import java.nio.ByteBuffer;
+
+import tetris.Block;
+import tetris.BlockFactory;
+import tetris.Board;
+import tetris.Color;
+import tetris.Element;
+import tetris.GameLogic;
+
+/**
+ * Encodes the complete state of a game in progress into a compact checkpoint, from which the game
+ * (or its replay) can continue. Used both for saving live sessions and as keyframes of replays.
+ *
+ * Format: version (byte), BlockFactory.piecesFingerprint() (8 bytes), board dimensions, score, reduced levels, small tick count and tick count
+ * (varints), random generator state (8 bytes), block's shape (varint), orientation and color (byte) and
+ * position (zigzag varints), then the board as bits: 1 bit of occupancy per cell followed by 2 bits of
+ * color per occupied cell. A game on the default board takes 50 to 100 bytes. Instances keep no state between
+ * calls and can be reused, no objects are allocated apart from the restored block.
+ *
+ */
+public class Checkpoint {
+	
+	/**
+	 * Version of format written by write()
+	 */
+	public static final int VERSION = 3;
+	
+	private static final Color[] COLORS = Color.values();
+	private static final int kOrientationBits = 5;
+	
+	private long bits;
+	private int bitCount;
+	
+	/**
+	 * Upper bound of bytes taken by a checkpoint of board with given dimensions
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 * @return Number of bytes
+	 */
+	public static int maxSize(int width, int depth, int height)
+	{
+		int cells = width*depth*height;
+		return 1 + 8 + 11*ReplayFormat.MAX_VARINT_BYTES + 8 + 1 + (3*cells + 7)/8;
+	}
+	
+	/**
+	 * Writes state of logic
+	 * @param logic Written game logic, its block has to come from BlockFactory
+	 * @param buffer Destination buffer, with at least maxSize() bytes remaining
+	 */
+	public void write(GameLogic logic, ByteBuffer buffer)
+	{
+		Board board = logic.getBoard();
+		Block block = logic.getBlock();
+		if (block.getShape() == Block.UNKNOWN_SHAPE) {
+			throw new IllegalStateException("Block of unknown shape can't be checkpointed");
+		}
+		
+		buffer.put((byte)VERSION);
+		buffer.putLong(BlockFactory.piecesFingerprint());
+		ReplayFormat.putVarLong(buffer, board.getWidth());
+		ReplayFormat.putVarLong(buffer, board.getDepth());
+		ReplayFormat.putVarLong(buffer, board.getHeight());
+		ReplayFormat.putVarLong(buffer, logic.getScore());
+		ReplayFormat.putVarLong(buffer, logic.getReducedLevelCount());
+		ReplayFormat.putVarLong(buffer, logic.getSmallTickCount());
+		ReplayFormat.putVarLong(buffer, logic.getTickCount());
+		buffer.putLong(logic.getRandomState());
+		
+		ReplayFormat.putVarLong(buffer, block.getShape());
+		buffer.put((byte)(block.getOrientation() | block.getColor().ordinal() << kOrientationBits));
+		ReplayFormat.putSignedVarLong(buffer, block.getX());
+		ReplayFormat.putSignedVarLong(buffer, block.getY());
+		ReplayFormat.putSignedVarLong(buffer, block.getZ());
+		
+		bits = 0;
+		bitCount = 0;
+		for (int pass = 0; pass < 2; pass++) { // occupancy first, then colors of occupied cells
+			for (int i = 0; i < board.getWidth(); i++) {
+				for (int j = 0; j < board.getDepth(); j++) {
+					for (int k = 0; k < board.getHeight(); k++) {
+						Element element = board.elementAtLocation(i, j, k);
+						if (pass == 0) {
+							putBits(buffer, element == null ? 0 : 1, 1);
+						} else if (element != null) {
+							putBits(buffer, element.getColor().ordinal(), 2);
+						}
+					}
+				}
+			}
+		}
+		
+		if (bitCount > 0) {
+			buffer.put((byte)bits);
+		}
+	}
+	
+	/**
+	 * Reads state written by write() and restores it into logic, reusing its board
+	 * @param buffer Source buffer
+	 * @param logic Restored game logic, it must have the same board size as the written one
+	 */
+	public void read(ByteBuffer buffer, GameLogic logic)
+	{
+		Board board = logic.getBoard();
+		if (buffer.get() != VERSION) {
+			throw new IllegalArgumentException("Unsupported checkpoint version");
+		}
+		if (buffer.getLong() != BlockFactory.piecesFingerprint()) {
+			throw new IllegalArgumentException("Checkpoint was taken with different pieces");
+		}
+		if (ReplayFormat.getVarLong(buffer) != board.getWidth() || ReplayFormat.getVarLong(buffer) != board.getDepth()
+				|| ReplayFormat.getVarLong(buffer) != board.getHeight()) {
+			throw new IllegalArgumentException("Checkpoint was taken with different board size");
+		}
+		
+		int score = (int)ReplayFormat.getVarLong(buffer);
+		int reducedLevelCount = (int)ReplayFormat.getVarLong(buffer);
+		int smallTickCount = (int)ReplayFormat.getVarLong(buffer);
+		long tickCount = ReplayFormat.getVarLong(buffer);
+		long randomState = buffer.getLong();
+		
+		long shape = ReplayFormat.getVarLong(buffer);
+		int orientationAndColor = buffer.get();
+		int x = (int)ReplayFormat.getSignedVarLong(buffer);
+		int y = (int)ReplayFormat.getSignedVarLong(buffer);
+		int z = (int)ReplayFormat.getSignedVarLong(buffer);
+		if (shape < 0 || shape >= BlockFactory.shapeCount()) {
+			throw new IllegalArgumentException("Unknown block shape " + shape);
+		}
+		
+		bits = 0;
+		bitCount = 0;
+		
+		// occupancy is stored as null/non-null first, colors are filled in the second pass
+		Element marker = Element.withColor(COLORS[0]);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < board.getWidth(); i++) {
+				for (int j = 0; j < board.getDepth(); j++) {
+					for (int k = 0; k < board.getHeight(); k++) {
+						if (pass == 0) {
+							board.setElementAtLocation(i, j, k, getBits(buffer, 1) == 0 ? null : marker);
+						} else if (board.elementAtLocation(i, j, k) != null) {
+							board.setElementAtLocation(i, j, k, Element.withColor(COLORS[getBits(buffer, 2)]));
+						}
+					}
+				}
+			}
+		}
+		
+		int orientation = orientationAndColor & ((1 << kOrientationBits) - 1);
+		Color color = COLORS[(orientationAndColor & 0xFF) >>> kOrientationBits];
+		Block block = BlockFactory.blockWithShape((int)shape, orientation, color, x, y, z);
+		
+		logic.restoreState(board, block, score, reducedLevelCount, smallTickCount, tickCount, randomState);
+	}
+	
+	private void putBits(ByteBuffer buffer, int value, int count)
+	{
+		bits |= (long)value << bitCount;
+		bitCount += count;
+		while (bitCount >= 8) {
+			buffer.put((byte)bits);
+			bits >>>= 8;
+			bitCount -= 8;
+		}
+	}
+	
+	private int getBits(ByteBuffer buffer, int count)
+	{
+		while (bitCount < count) {
+			bits |= (long)(buffer.get() & 0xFF) << bitCount;
+			bitCount += 8;
+		}
+		int value = (int)(bits & ((1 << count) - 1));
+		bits >>>= count;
+		bitCount -= count;
+		return value;
+	}
+}
@@ -0,0 +1,582 @@
+package tetris.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only archive holding many replays in a single data file, for farms producing
+ * millions of games. The data file is memory mapped in fixed size segments and records never
+ * cross segment boundaries, so every record can be read as a zero-copy slice of its segment.
+ *
+ * Any number of threads may append at once: space is reserved with a CAS on the end offset and
+ * marked as reserved, the record is written into the mapping and finally published by storing its
+ * length with release semantics. Readers skip reserved records, so a record that is still being
+ * written (or never will be, after a crash) doesn't hide the ones published after it.
+ *
+ * Record layout: length of replay (int, 0 past the end, minus the record's size while reserved,
+ * PADDING for the unused end of a segment), score (int), game id (long), ticks (long), replay bytes,
+ * padded to 8 bytes. The separate index file, written by writeIndex(), holds a header (magic, version,
+ * number of entries, archive end it covers), (id, ticks, offset, score) entries sorted by game id
+ * and the numbers of the entries sorted by score and ticks (int each).
+ *
+ */
+public final class ReplayArchive {
+	
+	/**
+	 * Receives records of scan()
+	 */
+	public interface Visitor {
+		/**
+		 * Called for every record matching the scan
+		 * @param id Game id
+		 * @param score Final score of the game
+		 * @param ticks Length of the game in ticks
+		 * @param replay Read-only slice of the mapping with the replay, valid while the archive is open
+		 * @return false to stop the scan
+		 */
+		boolean visit(long id, int score, long ticks, ByteBuffer replay);
+	}
+	
+	public static final int MAGIC = 0x54334441; // "T3DA"
+	public static final int INDEX_MAGIC = 0x54334458; // "T3DX"
+	public static final int VERSION = 2;
+	public static final int INDEX_VERSION = 2;
+	
+	public static final int HEADER_BYTES = 64;
+	public static final int RECORD_HEADER_BYTES = 24;
+	public static final int INDEX_HEADER_BYTES = 24;
+	public static final int INDEX_ENTRY_BYTES = 32;
+	
+	private static final int PADDING = -1;
+	// version 1 archives differ only by not marking reserved records, they are upgraded when opened
+	private static final int kFirstReadableVersion = 1;
+	private static final long kSegmentBytes = 1L << 26;
+	
+	private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	
+	private final File dataFile;
+	private final File indexFile;
+	private final File tempIndexFile;
+	private final FileChannel channel;
+	
+	private final Object segmentsLock = new Object();
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	
+	private final AtomicLong end = new AtomicLong();
+	private final AtomicLong nextId = new AtomicLong();
+	// reserved records before it were left by a crash, the ones after it may still be written
+	private long recoveredEnd;
+	
+	// index loaded when the archive was opened or written by writeIndex()
+	private volatile ByteBuffer index;
+	
+	/**
+	 * Prints the number of archived games with score in given range and the longest of them
+	 * @param args Archive directory, optionally followed by minimal and maximal score
+	 * @throws IOException if archive can't be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		ReplayArchive archive = open(new File(args[0]));
+		int minScore = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MIN_VALUE;
+		int maxScore = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+		
+		final long[] result = new long[3]; // count, id and ticks of the longest game
+		result[1] = -1;
+		archive.scan(minScore, maxScore, new Visitor() {
+			@Override
+			public boolean visit(long id, int score, long ticks, ByteBuffer replay) {
+				result[0]++;
+				if (ticks > result[2]) {
+					result[1] = id;
+					result[2] = ticks;
+				}
+				return true;
+			}
+		});
+		archive.close();
+		
+		System.out.println(result[0] + " of " + archive.getGameCount() + " games, longest: #" + result[1]
+				+ " (" + result[2] + " ticks)");
+	}
+	
+	/**
+	 * Opens the archive in given directory, creating it if needed
+	 * @param directory Directory holding data and index files of the archive
+	 * @return Opened archive
+	 * @throws IOException if files can't be opened or mapped
+	 */
+	public static ReplayArchive open(File directory) throws IOException
+	{
+		directory.mkdirs();
+		return new ReplayArchive(directory);
+	}
+	
+	private ReplayArchive(File directory) throws IOException
+	{
+		dataFile = new File(directory, "replays.t3da");
+		indexFile = new File(directory, "replays.t3dx");
+		tempIndexFile = new File(directory, "replays.t3dx.tmp");
+		
+		channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		
+		ByteBuffer first = segment(0);
+		if (first.getInt(0) == 0) {
+			first.putInt(4, VERSION);
+			first.putLong(8, kSegmentBytes);
+			first.putInt(0, MAGIC);
+		} else if (first.getInt(0) != MAGIC || first.getInt(4) < kFirstReadableVersion || first.getInt(4) > VERSION
+				|| first.getLong(8) != kSegmentBytes) {
+			channel.close();
+			throw new IOException("Not a replay archive: " + dataFile);
+		} else {
+			first.putInt(4, VERSION);
+		}
+		
+		recover();
+		loadIndex();
+	}
+	
+	/**
+	 * Appends a replay to the archive, may be called from any thread
+	 * @param replay Replay between position and limit, position is left unchanged
+	 * @param score Final score of the game
+	 * @param ticks Length of the game in ticks
+	 * @return Id assigned to the game
+	 */
+	public long append(ByteBuffer replay, int score, long ticks)
+	{
+		int length = replay.remaining();
+		long size = align(RECORD_HEADER_BYTES + length);
+		if (size > kSegmentBytes - HEADER_BYTES) {
+			throw new IllegalArgumentException("Replay too big for archive: " + length + " bytes");
+		}
+		
+		long offset = reserve(size);
+		long id = nextId.getAndIncrement();
+		
+		ByteBuffer segment = segment(segmentOf(offset));
+		int position = (int)(offset % kSegmentBytes);
+		segment.putInt(position + 4, score);
+		segment.putLong(position + 8, id);
+		segment.putLong(position + 16, ticks);
+		
+		ByteBuffer destination = segment.duplicate();
+		destination.position(position + RECORD_HEADER_BYTES);
+		destination.put(replay.duplicate());
+		
+		INT_VIEW.setRelease(segment, position, length);
+		return id;
+	}
+	
+	/**
+	 * Visits published records with score in given range. Games covered by the index are found in it
+	 * and visited by score and ticks, the ones archived later are filtered by their record headers and
+	 * visited in the order they were appended. Replays are passed as slices of the mapping.
+	 * @param minScore Lowest visited score, inclusive
+	 * @param maxScore Highest visited score, inclusive
+	 * @param visitor Visitor called for each matching record
+	 */
+	public void scan(int minScore, int maxScore, Visitor visitor)
+	{
+		ByteBuffer index = this.index;
+		if (index == null) {
+			scanFrom(HEADER_BYTES, minScore, maxScore, visitor);
+			return;
+		}
+		
+		int count = index.getInt(8);
+		int scoreOrder = INDEX_HEADER_BYTES + count*INDEX_ENTRY_BYTES;
+		
+		// the first entry in score order with score >= minScore
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (index.getInt(indexEntry(index, scoreOrder, middle) + 24) < minScore) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		for (int i = low; i < count; i++) {
+			int entry = indexEntry(index, scoreOrder, i);
+			int score = index.getInt(entry + 24);
+			if (score > maxScore) {
+				break;
+			}
+			if (!visitor.visit(index.getLong(entry), score, index.getLong(entry + 8), record(index.getLong(entry + 16)))) {
+				return;
+			}
+		}
+		
+		scanFrom(index.getLong(16), minScore, maxScore, visitor);
+	}
+	
+	private void scanFrom(long from, int minScore, int maxScore, Visitor visitor)
+	{
+		long limit = end.get();
+		for (long offset = published(from, limit); offset >= 0; offset = published(next(offset), limit)) {
+			ByteBuffer segment = segment(segmentOf(offset));
+			int position = (int)(offset % kSegmentBytes);
+			
+			int score = segment.getInt(position + 4);
+			if (score >= minScore && score <= maxScore) {
+				if (!visitor.visit(segment.getLong(position + 8), score, segment.getLong(position + 16),
+						slice(segment, position, segment.getInt(position)))) {
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds a game by its id, using the index for games archived before it was written
+	 * @param id Game id
+	 * @return Read-only slice of the mapping with the replay or null if there's no such game
+	 */
+	public ByteBuffer get(final long id)
+	{
+		ByteBuffer index = this.index;
+		if (index != null) {
+			int low = 0;
+			int high = index.getInt(8) - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int entry = INDEX_HEADER_BYTES + middle*INDEX_ENTRY_BYTES;
+				long entryId = index.getLong(entry);
+				if (entryId < id) {
+					low = middle + 1;
+				} else if (entryId > id) {
+					high = middle - 1;
+				} else {
+					return record(index.getLong(entry + 16));
+				}
+			}
+		}
+		
+		final ByteBuffer[] found = new ByteBuffer[1];
+		scanFrom(index != null ? index.getLong(16) : HEADER_BYTES, Integer.MIN_VALUE, Integer.MAX_VALUE, new Visitor() {
+			@Override
+			public boolean visit(long recordId, int score, long ticks, ByteBuffer replay) {
+				if (recordId == id) {
+					found[0] = replay;
+					return false;
+				}
+				return true;
+			}
+		});
+		return found[0];
+	}
+	
+	/**
+	 * Writes index of the published games, sorted by game id and by score. Appending may continue
+	 * meanwhile, the index covers games up to the first one still being written and the rest are
+	 * found by scanning.
+	 * @throws IOException if index can't be written
+	 */
+	public void writeIndex() throws IOException
+	{
+		// ids are handed out sequentially from 0, so they are sorted by placing each at its own slot
+		long[] offsets = new long[(int)nextId.get()];
+		long[] ticks = new long[offsets.length];
+		int[] scores = new int[offsets.length];
+		int count = 0;
+		
+		long limit = end.get();
+		long offset = HEADER_BYTES;
+		while (offset < limit) {
+			ByteBuffer segment = segment(segmentOf(offset));
+			int position = (int)(offset % kSegmentBytes);
+			int length = (int)INT_VIEW.getAcquire(segment, position);
+			if (length == PADDING) {
+				offset = (segmentOf(offset) + 1) * kSegmentBytes;
+				continue;
+			}
+			if (length == 0 || (length < 0 && offset >= recoveredEnd)) {
+				break; // being written, this and the following records are left for scanning
+			}
+			if (length < 0) {
+				offset -= length; // left by a crash
+				continue;
+			}
+			
+			long slot = segment.getLong(position + 8);
+			if (slot >= offsets.length) {
+				break; // space is reserved before the id is taken, the game got its id after nextId was read
+			}
+			offsets[(int)slot] = offset;
+			ticks[(int)slot] = segment.getLong(position + 16);
+			scores[(int)slot] = segment.getInt(position + 4);
+			count++;
+			offset = next(offset);
+		}
+		long covered = Math.min(offset, limit);
+		
+		// entries in id order, then their numbers in score order
+		long[] entryTicks = new long[count];
+		int[] entryScores = new int[count];
+		int[] scoreOrder = new int[count];
+		ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_BYTES + count*(INDEX_ENTRY_BYTES + 4));
+		buffer.putInt(INDEX_MAGIC);
+		buffer.putInt(INDEX_VERSION);
+		buffer.putInt(count);
+		buffer.putInt(0);
+		buffer.putLong(covered);
+		int entry = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			if (offsets[i] != 0) {
+				buffer.putLong(i);
+				buffer.putLong(ticks[i]);
+				buffer.putLong(offsets[i]);
+				buffer.putInt(scores[i]);
+				buffer.putInt(0);
+				
+				entryTicks[entry] = ticks[i];
+				entryScores[entry] = scores[i];
+				scoreOrder[entry] = entry;
+				entry++;
+			}
+		}
+		
+		sortByScore(scoreOrder, entryScores, entryTicks);
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(scoreOrder[i]);
+		}
+		buffer.flip();
+		
+		FileChannel out = FileChannel.open(tempIndexFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			out.force(true);
+		} finally {
+			out.close();
+		}
+		Files.move(tempIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		
+		buffer.rewind();
+		index = buffer.asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Forces the mapped segments to disk, writes the index and closes the archive. No other
+	 * method may be called afterwards.
+	 * @throws IOException if archive can't be written
+	 */
+	public void close() throws IOException
+	{
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		writeIndex();
+		channel.close();
+	}
+	
+	/**
+	 * Getter for number of games appended to the archive so far
+	 * @return number of games
+	 */
+	public long getGameCount()
+	{
+		return nextId.get();
+	}
+	
+	private long reserve(long size)
+	{
+		while (true) {
+			long start = end.get();
+			long segmentEnd = (start / kSegmentBytes + 1) * kSegmentBytes;
+			
+			if (start + size <= segmentEnd) {
+				if (end.compareAndSet(start, start + size)) {
+					// readers skip the record until it's published, even if it never is
+					ByteBuffer segment = segment(segmentOf(start));
+					INT_VIEW.setRelease(segment, (int)(start % kSegmentBytes), (int)-size);
+					return start;
+				}
+			} else if (end.compareAndSet(start, segmentEnd)) {
+				// record doesn't fit, the rest of the segment is skipped
+				ByteBuffer segment = segment(segmentOf(start));
+				INT_VIEW.setRelease(segment, (int)(start % kSegmentBytes), PADDING);
+			}
+		}
+	}
+	
+	private ByteBuffer record(long offset)
+	{
+		ByteBuffer segment = segment(segmentOf(offset));
+		int position = (int)(offset % kSegmentBytes);
+		return slice(segment, position, (int)INT_VIEW.getAcquire(segment, position));
+	}
+	
+	private static ByteBuffer slice(ByteBuffer segment, int position, int length)
+	{
+		ByteBuffer replay = segment.asReadOnlyBuffer();
+		replay.limit(position + RECORD_HEADER_BYTES + length);
+		replay.position(position + RECORD_HEADER_BYTES);
+		return replay.slice();
+	}
+	
+	private long published(long offset, long limit)
+	{
+		// offset of the first published record at or after given offset, or -1
+		while (offset < limit) {
+			ByteBuffer segment = segment(segmentOf(offset));
+			int length = (int)INT_VIEW.getAcquire(segment, (int)(offset % kSegmentBytes));
+			if (length > 0) {
+				return offset;
+			} else if (length == PADDING) {
+				offset = (segmentOf(offset) + 1) * kSegmentBytes;
+			} else if (length < 0) {
+				offset -= length; // reserved, not published yet
+			} else {
+				return -1; // reserved, not marked yet
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Sorts entry numbers by score and ticks of the entries, without boxing them. Bottom-up merge
+	 * sort, so that entries with equal score and ticks stay in id order.
+	 * @param order Entry numbers, sorted in place
+	 * @param scores Scores indexed by entry number
+	 * @param ticks Ticks indexed by entry number
+	 */
+	private static void sortByScore(int[] order, int[] scores, long[] ticks)
+	{
+		int[] source = order;
+		int[] target = new int[order.length];
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int from = 0; from < order.length; from += 2*width) {
+				int middle = Math.min(from + width, order.length);
+				int to = Math.min(from + 2*width, order.length);
+				int left = from;
+				int right = middle;
+				for (int i = from; i < to; i++) {
+					if (left < middle && (right == to || scores[source[left]] < scores[source[right]]
+							|| scores[source[left]] == scores[source[right]] && ticks[source[left]] <= ticks[source[right]])) {
+						target[i] = source[left++];
+					} else {
+						target[i] = source[right++];
+					}
+				}
+			}
+			int[] swap = source;
+			source = target;
+			target = swap;
+		}
+		if (source != order) {
+			System.arraycopy(source, 0, order, 0, order.length);
+		}
+	}
+	
+	private static int indexEntry(ByteBuffer index, int scoreOrder, int i)
+	{
+		return INDEX_HEADER_BYTES + index.getInt(scoreOrder + 4*i)*INDEX_ENTRY_BYTES;
+	}
+	
+	private long next(long offset)
+	{
+		ByteBuffer segment = segment(segmentOf(offset));
+		return offset + align(RECORD_HEADER_BYTES + segment.getInt((int)(offset % kSegmentBytes)));
+	}
+	
+	private static int segmentOf(long offset)
+	{
+		return (int)(offset / kSegmentBytes);
+	}
+	
+	private ByteBuffer segment(int number)
+	{
+		MappedByteBuffer[] segments = this.segments;
+		if (number < segments.length) {
+			return segments[number];
+		}
+		
+		synchronized (segmentsLock) {
+			segments = this.segments;
+			if (number < segments.length) {
+				return segments[number];
+			}
+			
+			MappedByteBuffer[] grown = new MappedByteBuffer[number + 1];
+			System.arraycopy(segments, 0, grown, 0, segments.length);
+			try {
+				for (int i = segments.length; i <= number; i++) {
+					grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i*kSegmentBytes, kSegmentBytes);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Can't map archive segment " + number, e);
+			}
+			this.segments = grown;
+			return grown[number];
+		}
+	}
+	
+	private void loadIndex() throws IOException
+	{
+		if (!indexFile.exists()) {
+			return;
+		}
+		
+		byte[] bytes = Files.readAllBytes(indexFile.toPath());
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length >= INDEX_HEADER_BYTES && buffer.getInt(0) == INDEX_MAGIC && buffer.getInt(4) == INDEX_VERSION
+				&& bytes.length == INDEX_HEADER_BYTES + buffer.getInt(8)*(INDEX_ENTRY_BYTES + 4)
+				&& buffer.getLong(16) <= end.get()) {
+			index = buffer.asReadOnlyBuffer();
+		}
+	}
+	
+	private void recover() throws IOException
+	{
+		// find the end of records and the next free id, skipping records reserved before a crash
+		long limit = Math.max(channel.size(), kSegmentBytes);
+		long offset = HEADER_BYTES;
+		long maxId = -1;
+		
+		while (offset < limit) {
+			ByteBuffer segment = segment(segmentOf(offset));
+			int position = (int)(offset % kSegmentBytes);
+			int length = segment.getInt(position);
+			if (length == PADDING) {
+				offset = (segmentOf(offset) + 1) * kSegmentBytes;
+				continue;
+			}
+			
+			long size = length > 0 ? align(RECORD_HEADER_BYTES + length) : -(long)length;
+			if (length == 0 || size < RECORD_HEADER_BYTES || position + size > kSegmentBytes) {
+				break; // end of archive or damaged record
+			}
+			if (length > 0) {
+				maxId = Math.max(maxId, segment.getLong(position + 8));
+			}
+			offset += size;
+		}
+		
+		end.set(offset);
+		recoveredEnd = offset;
+		nextId.set(maxId + 1);
+	}
+	
+	private static long align(long size)
+	{
+		return (size + 7) & ~7L;
+	}
+}
@@ -0,0 +1,109 @@
+package tetris.replay;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and encoding helpers of the replay file format.
+ * 
+ * A replay starts with a header: magic bytes "T3DR", format version, the seed (8 bytes),
+ * BlockFactory.piecesFingerprint() (8 bytes), board dimensions and keyframe interval (varints). It's followed by events, each being a single varint of
+ * (ticks since previous event << 4 | input ordinal). Event with Input.None ordinal marks the end of
+ * the replay, it's followed by a varint with the final score (or 0 if the game was not finished).
+ * 
+ * Every keyframe interval ticks, before inputs of the tick, a KEYFRAME event is written followed by
+ * the varint length of a Checkpoint and the checkpoint itself. The replay ends with an index of keyframes:
+ * (tick, file offset of KEYFRAME event) pairs of longs, followed by a footer of the index offset (long),
+ * number of entries (int) and INDEX_MAGIC. All the fixed width values are big endian.
+ * 
+ * Every checksum interval ticks, after the keyframe if there is one, a CHECKSUM event is written
+ * followed by GameLogic.getChecksum() at the start of the tick (8 bytes), so that playback can tell
+ * the first tick at which it diverged from the recorded game.
+ *
+ */
+public final class ReplayFormat {
+	
+	public static final int MAGIC = 0x54334452; // "T3DR"
+	public static final int VERSION = 6;
+	public static final int INDEX_MAGIC = 0x54334449; // "T3DI"
+	public static final int INDEX_ENTRY_BYTES = 16;
+	public static final int FOOTER_BYTES = 16;
+	
+	/**
+	 * Number of bits of an event holding input's ordinal
+	 */
+	public static final int INPUT_BITS = 4;
+	public static final int INPUT_MASK = (1 << INPUT_BITS) - 1;
+	
+	/**
+	 * Code of event carrying a keyframe, in place of input's ordinal
+	 */
+	public static final int KEYFRAME = INPUT_MASK;
+	
+	/**
+	 * Code of event carrying a state checksum, in place of input's ordinal
+	 */
+	public static final int CHECKSUM = INPUT_MASK - 1;
+	
+	/**
+	 * Upper bound of bytes taken by a single varint
+	 */
+	public static final int MAX_VARINT_BYTES = 10;
+	
+	private ReplayFormat() {
+	}
+	
+	/**
+	 * Writes unsigned variable length integer, 7 bits per byte, least significant first
+	 * @param buffer Destination buffer
+	 * @param value Written value, treated as unsigned
+	 */
+	public static void putVarLong(ByteBuffer buffer, long value)
+	{
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+	
+	/**
+	 * Reads unsigned variable length integer written by putVarLong()
+	 * @param buffer Source buffer
+	 * @return Read value
+	 * @throws BufferUnderflowException if buffer ends in the middle of value
+	 */
+	public static long getVarLong(ByteBuffer buffer)
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long)(b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+	
+	/**
+	 * Writes signed variable length integer, zigzag encoded so that small negative values stay short
+	 * @param buffer Destination buffer
+	 * @param value Written value
+	 */
+	public static void putSignedVarLong(ByteBuffer buffer, long value)
+	{
+		putVarLong(buffer, (value << 1) ^ (value >> 63));
+	}
+	
+	/**
+	 * Reads signed variable length integer written by putSignedVarLong()
+	 * @param buffer Source buffer
+	 * @return Read value
+	 */
+	public static long getSignedVarLong(ByteBuffer buffer)
+	{
+		long value = getVarLong(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
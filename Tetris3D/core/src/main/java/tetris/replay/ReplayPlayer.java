@@ -0,0 +1,273 @@
+package tetris.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import tetris.BlockFactory;
+import tetris.GameLogic;
+import tetris.Input;
+
+/**
+ * Plays back a recorded game deterministically and as fast as possible, without rendering.
+ * Using the keyframe index at the end of the replay it can seek to any tick re-simulating at most
+ * keyframe interval ticks. Recorded checksums are compared with the replayed state, the first tick
+ * at which they differ is reported by getDivergedTick().
+ *
+ */
+public class ReplayPlayer {
+	
+	private static final Input[] INPUTS = Input.values();
+	
+	private final ByteBuffer data;
+	private final int eventsOffset;
+	private final long seed;
+	private final int keyframeInterval;
+	private final GameLogic logic;
+	private final Checkpoint checkpoint = new Checkpoint();
+	
+	private Input[] tickInputs = new Input[16];
+	private int recordedScore;
+	private long divergedTick = -1;
+	
+	// next event of the replay, decoded ahead
+	private long nextEventTick;
+	private int nextEventCode;
+	private long nextChecksum;
+	
+	/**
+	 * Prints result of replaying a file
+	 * @param args Path to replay file, optionally followed by the tick to seek to
+	 * @throws IOException if file can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		long startTime = System.nanoTime();
+		ReplayPlayer player = open(Paths.get(args[0]));
+		GameLogic logic = args.length > 1 ? player.seek(Long.parseLong(args[1])) : player.play();
+		long elapsed = System.nanoTime() - startTime;
+		
+		System.out.println("Ticks: " + logic.getTickCount() + ", score: " + logic.getScore() + " (recorded "
+				+ player.getRecordedScore() + "), replayed in " + elapsed/1000000.0 + " ms");
+		if (player.getDivergedTick() >= 0) {
+			System.out.println("Diverged from recording at tick " + player.getDivergedTick());
+		}
+	}
+	
+	/**
+	 * Memory maps a replay file and creates a player for it
+	 * @param path Path to replay file
+	 * @return Player positioned at the beginning of replay
+	 * @throws IOException if file can't be mapped
+	 */
+	public static ReplayPlayer open(Path path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new ReplayPlayer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close(); // mapping stays valid
+		}
+	}
+	
+	/**
+	 * Designated constructor, reads the header of replay
+	 * @param data Whole replay, starting at position 0
+	 */
+	public ReplayPlayer(ByteBuffer data)
+	{
+		this.data = data;
+		
+		if (data.getInt() != ReplayFormat.MAGIC) {
+			throw new IllegalArgumentException("Not a replay");
+		}
+		if (data.get() != ReplayFormat.VERSION) {
+			throw new IllegalArgumentException("Unsupported replay version");
+		}
+		seed = data.getLong();
+		if (data.getLong() != BlockFactory.piecesFingerprint()) {
+			throw new IllegalArgumentException("Replay was recorded with different pieces");
+		}
+		
+		int width = (int)ReplayFormat.getVarLong(data);
+		int depth = (int)ReplayFormat.getVarLong(data);
+		int height = (int)ReplayFormat.getVarLong(data);
+		logic = new GameLogic(width, depth, height);
+		keyframeInterval = (int)ReplayFormat.getVarLong(data);
+		eventsOffset = data.position();
+		
+		rewind();
+	}
+	
+	/**
+	 * Replays the whole game from current position
+	 * @return Logic in the state at the end of replay
+	 */
+	public GameLogic play()
+	{
+		return advanceTo(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Brings the game to the state after given number of ticks, using the nearest preceding keyframe
+	 * @param tick Target tick
+	 * @return Logic in the state at target tick (or at the end of replay if it's shorter)
+	 */
+	public GameLogic seek(long tick)
+	{
+		int indexOffset = (int)data.getLong(data.limit() - ReplayFormat.FOOTER_BYTES);
+		int count = data.getInt(data.limit() - ReplayFormat.FOOTER_BYTES + 8);
+		if (data.getInt(data.limit() - 4) != ReplayFormat.INDEX_MAGIC) {
+			throw new IllegalArgumentException("Replay has no keyframe index");
+		}
+		
+		// the last keyframe not after target tick
+		int low = 0;
+		int high = count - 1;
+		int found = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (data.getLong(indexOffset + middle*ReplayFormat.INDEX_ENTRY_BYTES) <= tick) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		
+		long currentTick = logic.getTickCount();
+		if (found < 0) {
+			rewind();
+		} else {
+			long keyframeTick = data.getLong(indexOffset + found*ReplayFormat.INDEX_ENTRY_BYTES);
+			// it's faster to continue from current state if it's between keyframe and target
+			if (logic.isOver() || currentTick < keyframeTick || currentTick > tick) {
+				int offset = (int)data.getLong(indexOffset + found*ReplayFormat.INDEX_ENTRY_BYTES + 8);
+				data.position(offset);
+				
+				ReplayFormat.getVarLong(data); // KEYFRAME event
+				int length = (int)ReplayFormat.getVarLong(data);
+				int end = data.position() + length;
+				checkpoint.read(data, logic);
+				data.position(end);
+				
+				nextEventTick = keyframeTick;
+				readNextEvent();
+			}
+		}
+		
+		return advanceTo(tick);
+	}
+	
+	/**
+	 * Replays the game from current position up to given tick, e.g. to step through it tick by tick
+	 * @param tick Target tick, earlier ticks need seek()
+	 * @return Logic in the state at target tick (or at the end of replay if it's shorter)
+	 */
+	public GameLogic playTo(long tick)
+	{
+		return advanceTo(tick);
+	}
+	
+	private void rewind()
+	{
+		logic.newGame(seed);
+		data.position(eventsOffset);
+		nextEventTick = 0;
+		readNextEvent();
+	}
+	
+	private GameLogic advanceTo(long targetTick)
+	{
+		while (logic.getTickCount() < targetTick && !logic.isOver()) {
+			long tick = logic.getTickCount();
+			
+			// gather all the inputs of the tick, they are applied at once
+			int count = 0;
+			while (nextEventTick == tick && nextEventCode != Input.None.ordinal()) {
+				if (nextEventCode == ReplayFormat.CHECKSUM) {
+					if (divergedTick < 0 && nextChecksum != logic.getChecksum()) {
+						divergedTick = tick;
+					}
+					readNextEvent();
+					continue;
+				}
+				if (count == tickInputs.length) {
+					Input[] grown = new Input[count*2];
+					System.arraycopy(tickInputs, 0, grown, 0, count);
+					tickInputs = grown;
+				}
+				tickInputs[count++] = INPUTS[nextEventCode];
+				readNextEvent();
+			}
+			
+			if (nextEventCode == Input.None.ordinal() && tick >= nextEventTick) {
+				break; // end of replay
+			}
+			
+			logic.tickWithInputs(tickInputs, count);
+		}
+		
+		return logic;
+	}
+	
+	private void readNextEvent()
+	{
+		while (true) {
+			long event = ReplayFormat.getVarLong(data);
+			nextEventTick += event >>> ReplayFormat.INPUT_BITS;
+			nextEventCode = (int)(event & ReplayFormat.INPUT_MASK);
+			
+			if (nextEventCode == ReplayFormat.KEYFRAME) {
+				int length = (int)ReplayFormat.getVarLong(data);
+				data.position(data.position() + length); // keyframes are only needed to seek
+			} else {
+				if (nextEventCode == ReplayFormat.CHECKSUM) {
+					nextChecksum = data.getLong();
+				} else if (nextEventCode == Input.None.ordinal()) {
+					recordedScore = (int)ReplayFormat.getVarLong(data);
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * First tick at which replayed state didn't match the recorded checksum. Playback continues
+	 * past it, but the state no longer follows the recorded game.
+	 * @return diverged tick or -1 if no divergence was found so far
+	 */
+	public long getDivergedTick()
+	{
+		return divergedTick;
+	}
+	
+	/**
+	 * Getter for seed of replayed game
+	 * @return seed
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+	/**
+	 * Getter for number of ticks between keyframes
+	 * @return keyframe interval
+	 */
+	public int getKeyframeInterval()
+	{
+		return keyframeInterval;
+	}
+	
+	/**
+	 * Score recorded at the end of replay, 0 if the game was not finished
+	 * @return recorded score
+	 */
+	public int getRecordedScore()
+	{
+		return recordedScore;
+	}
+}
@@ -0,0 +1,296 @@
+package tetris.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import tetris.BlockFactory;
+import tetris.Board;
+import tetris.GameListener;
+import tetris.GameLogic;
+import tetris.Input;
+
+/**
+ * Records every game played by a GameLogic into its own replay file. Events are encoded into
+ * a pre-allocated buffer which is written through a FileChannel when it fills up, so recording
+ * doesn't allocate per event. Every keyframe interval ticks the whole state is stored as a Checkpoint
+ * and indexed, so that viewers can seek without re-simulating the whole game. State checksums are
+ * recorded more often, so that a desynchronized playback is caught close to where it diverged. Instead of separate
+ * files, the games can be appended to a ReplayArchive.
+ *
+ */
+public class ReplayRecorder implements GameListener {
+	
+	/**
+	 * Default number of ticks between keyframes
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 600;
+	
+	/**
+	 * Number of ticks between state checksums
+	 */
+	public static final int CHECKSUM_INTERVAL = 60;
+	
+	private static final int kBufferSize = 8192;
+	
+	private final File directory;
+	private final ReplayArchive archive;
+	private final GameLogic logic;
+	private final int keyframeInterval;
+	
+	private final ByteBuffer buffer;
+	private final ByteBuffer keyframeBuffer;
+	private final Checkpoint checkpoint = new Checkpoint();
+	
+	private boolean recording;
+	private FileChannel channel;
+	private ByteBuffer archived; // whole replay when recording into archive
+	private File file;
+	private long flushedBytes;
+	private long lastEventTick;
+	private long reachedTick; // tick count of current game after its last started tick
+	
+	// keyframe index of current game
+	private long[] keyframeTicks = new long[64];
+	private long[] keyframeOffsets = new long[64];
+	private int keyframeCount;
+	
+	/**
+	 * Designated constructor
+	 * @param directory Directory in which replay files are created
+	 * @param logic Recorded logic, recorder has to be set as its listener
+	 * @param keyframeInterval Number of ticks between keyframes
+	 */
+	public ReplayRecorder(File directory, GameLogic logic, int keyframeInterval)
+	{
+		this(directory, null, logic, keyframeInterval);
+	}
+	
+	/**
+	 * Creates recorder appending games to an archive
+	 * @param archive Archive receiving finished games, may be shared by many recorders
+	 * @param logic Recorded logic, recorder has to be set as its listener
+	 * @param keyframeInterval Number of ticks between keyframes
+	 */
+	public ReplayRecorder(ReplayArchive archive, GameLogic logic, int keyframeInterval)
+	{
+		this(null, archive, logic, keyframeInterval);
+	}
+	
+	private ReplayRecorder(File directory, ReplayArchive archive, GameLogic logic, int keyframeInterval)
+	{
+		this.directory = directory;
+		this.archive = archive;
+		this.logic = logic;
+		this.keyframeInterval = keyframeInterval;
+		
+		Board board = logic.getBoard();
+		this.keyframeBuffer = ByteBuffer.allocateDirect(Checkpoint.maxSize(board.getWidth(), board.getDepth(), board.getHeight()));
+		// keyframes of big boards don't fit the default buffer, they are written in one piece
+		this.buffer = ByteBuffer.allocateDirect(Math.max(kBufferSize, 2*ReplayFormat.MAX_VARINT_BYTES + keyframeBuffer.capacity()));
+	}
+	
+	@Override
+	public void gameStarted(long seed)
+	{
+		finish(reachedTick, 0); // previous game was abandoned
+		
+		if (archive != null) {
+			if (archived == null) {
+				archived = ByteBuffer.allocate(kBufferSize);
+			}
+			archived.clear();
+		} else {
+			directory.mkdirs();
+			file = new File(directory, System.currentTimeMillis() + "-" + Long.toHexString(seed) + ".t3dr");
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+		
+		recording = true;
+		buffer.clear();
+		flushedBytes = 0;
+		buffer.putInt(ReplayFormat.MAGIC);
+		buffer.put((byte)ReplayFormat.VERSION);
+		buffer.putLong(seed);
+		buffer.putLong(BlockFactory.piecesFingerprint());
+		ReplayFormat.putVarLong(buffer, logic.getBoard().getWidth());
+		ReplayFormat.putVarLong(buffer, logic.getBoard().getDepth());
+		ReplayFormat.putVarLong(buffer, logic.getBoard().getHeight());
+		ReplayFormat.putVarLong(buffer, keyframeInterval);
+		lastEventTick = 0;
+		reachedTick = 0;
+		keyframeCount = 0;
+	}
+	
+	@Override
+	public void tickStarted(long tick)
+	{
+		if (!recording) {
+			return;
+		}
+		reachedTick = tick + 1;
+		if (tick % keyframeInterval == 0) {
+			putKeyframe(tick);
+		}
+		if (tick % CHECKSUM_INTERVAL == 0) {
+			if (buffer.remaining() < ReplayFormat.MAX_VARINT_BYTES + 8) {
+				flush();
+			}
+			putEvent(tick, ReplayFormat.CHECKSUM);
+			buffer.putLong(logic.getChecksum());
+		}
+	}
+	
+	private void putKeyframe(long tick)
+	{
+		keyframeBuffer.clear();
+		checkpoint.write(logic, keyframeBuffer);
+		keyframeBuffer.flip();
+		
+		if (buffer.remaining() < 2*ReplayFormat.MAX_VARINT_BYTES + keyframeBuffer.remaining()) {
+			flush();
+		}
+		
+		addIndexEntry(tick, flushedBytes + buffer.position());
+		putEvent(tick, ReplayFormat.KEYFRAME);
+		ReplayFormat.putVarLong(buffer, keyframeBuffer.remaining());
+		buffer.put(keyframeBuffer);
+	}
+	
+	@Override
+	public void inputApplied(long tick, Input input)
+	{
+		if (!recording) {
+			return;
+		}
+		
+		putEvent(tick, input.ordinal());
+	}
+	
+	@Override
+	public void gameEnded(long ticks, int score)
+	{
+		finish(ticks, score);
+	}
+	
+	/**
+	 * Finishes the replay of current game, if any
+	 */
+	public void close()
+	{
+		finish(reachedTick, 0);
+	}
+	
+	/**
+	 * Getter for file of the current (or last) recorded game
+	 * @return replay file or null when recording into archive
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+	
+	private void addIndexEntry(long tick, long offset)
+	{
+		if (keyframeCount == keyframeTicks.length) {
+			long[] ticks = new long[keyframeCount*2];
+			long[] offsets = new long[keyframeCount*2];
+			System.arraycopy(keyframeTicks, 0, ticks, 0, keyframeCount);
+			System.arraycopy(keyframeOffsets, 0, offsets, 0, keyframeCount);
+			keyframeTicks = ticks;
+			keyframeOffsets = offsets;
+		}
+		
+		keyframeTicks[keyframeCount] = tick;
+		keyframeOffsets[keyframeCount] = offset;
+		keyframeCount++;
+	}
+	
+	private void putEvent(long tick, int code)
+	{
+		if (buffer.remaining() < ReplayFormat.MAX_VARINT_BYTES) {
+			flush();
+		}
+		
+		ReplayFormat.putVarLong(buffer, ((tick - lastEventTick) << ReplayFormat.INPUT_BITS) | code);
+		lastEventTick = tick;
+	}
+	
+	private void finish(long ticks, int score)
+	{
+		if (!recording) {
+			return;
+		}
+		
+		putEvent(ticks, Input.None.ordinal());
+		if (buffer.remaining() < ReplayFormat.MAX_VARINT_BYTES) {
+			flush();
+		}
+		ReplayFormat.putVarLong(buffer, score);
+		
+		long indexOffset = flushedBytes + buffer.position();
+		for (int i = 0; i < keyframeCount; i++) {
+			if (buffer.remaining() < ReplayFormat.INDEX_ENTRY_BYTES) {
+				flush();
+			}
+			buffer.putLong(keyframeTicks[i]);
+			buffer.putLong(keyframeOffsets[i]);
+		}
+		
+		if (buffer.remaining() < ReplayFormat.FOOTER_BYTES) {
+			flush();
+		}
+		buffer.putLong(indexOffset);
+		buffer.putInt(keyframeCount);
+		buffer.putInt(ReplayFormat.INDEX_MAGIC);
+		flush();
+		recording = false;
+		
+		if (archive != null) {
+			archived.flip();
+			archive.append(archived, score, ticks);
+			return;
+		}
+		
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+	
+	private void flush()
+	{
+		buffer.flip();
+		if (archive != null) {
+			flushedBytes += buffer.remaining();
+			if (archived.remaining() < buffer.remaining()) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(archived.capacity()*2, archived.position() + buffer.remaining()));
+				archived.flip();
+				grown.put(archived);
+				archived = grown;
+			}
+			archived.put(buffer);
+			buffer.clear();
+			return;
+		}
+		
+		try {
+			while (buffer.hasRemaining()) {
+				flushedBytes += channel.write(buffer);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		buffer.clear();
+	}
+}
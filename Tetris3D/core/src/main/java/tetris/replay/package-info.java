@@ -0,0 +1,6 @@
+/**
+ * This package contains recording and deterministic playback of games. A replay consists of
+ * the seed of the game and a compact stream of inputs applied at each tick. Large numbers of games
+ * are stored in a single memory mapped ReplayArchive.
+ */
+package tetris.replay;
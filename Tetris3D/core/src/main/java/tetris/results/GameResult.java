@@ -0,0 +1,33 @@
+package tetris.results;
+
+/**
+ * Result of a single finished game, one row of exported results. Instances are reusable, exporter
+ * copies the values when the result is put.
+ *
+ */
+public class GameResult {
+	
+	/**
+	 * Highest number of levels counted separately, clears of more levels at once count as this many
+	 */
+	public static final int MAX_MULTIPLICITY = 4;
+	
+	public long seed;
+	public int score;
+	public int pieces;
+	
+	/**
+	 * Number of times 1, 2 ... MAX_MULTIPLICITY levels were cleared at once, at index multiplicity - 1
+	 */
+	public final int[] clears = new int[MAX_MULTIPLICITY];
+	
+	/**
+	 * Highest number of levels occupied at any time
+	 */
+	public int maxHeight;
+	
+	/**
+	 * Duration of game in ticks
+	 */
+	public long ticks;
+}
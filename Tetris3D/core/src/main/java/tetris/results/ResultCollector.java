@@ -0,0 +1,80 @@
+package tetris.results;
+
+import tetris.Board;
+import tetris.BoardChanges;
+import tetris.BoardListener;
+import tetris.GameLogic;
+
+/**
+ * Collects the parts of GameResult that GameLogic doesn't keep track of: pieces locked, clears by
+ * the number of levels cleared at once and the highest stack. It listens to board changes, passing
+ * them on to another listener if there was one, and restarts counting when the board is reset.
+ *
+ */
+public class ResultCollector implements BoardListener {
+	
+	private final BoardListener next;
+	
+	private int pieces;
+	private final int[] clears = new int[GameResult.MAX_MULTIPLICITY];
+	private int maxHeight;
+	
+	/**
+	 * Creates collector which is the only board listener
+	 */
+	public ResultCollector()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param next Listener receiving all the changes after collector, or null
+	 */
+	public ResultCollector(BoardListener next)
+	{
+		this.next = next;
+	}
+	
+	@Override
+	public void boardChanged(Board board, BoardChanges changes)
+	{
+		switch (changes.getKind()) {
+		case CellsSet:
+			pieces++;
+			for (int i = 0; i < changes.getCellCount(); i++) {
+				maxHeight = Math.max(maxHeight, changes.getCellZ(i) + 1);
+			}
+			break;
+		case LevelsRemoved:
+			clears[Math.min(changes.getRemovedLevelCount(), GameResult.MAX_MULTIPLICITY) - 1]++;
+			break;
+		case Reset:
+			pieces = 0;
+			for (int i = 0; i < clears.length; i++) {
+				clears[i] = 0;
+			}
+			maxHeight = board.getTopLevel();
+			break;
+		}
+		
+		if (next != null) {
+			next.boardChanged(board, changes);
+		}
+	}
+	
+	/**
+	 * Fills result of the current game of logic, collector must be its board listener since the game started
+	 * @param logic Logic whose game ended
+	 * @param result Filled result
+	 */
+	public void fill(GameLogic logic, GameResult result)
+	{
+		result.seed = logic.getSeed();
+		result.score = logic.getScore();
+		result.pieces = pieces;
+		System.arraycopy(clears, 0, result.clears, 0, clears.length);
+		result.maxHeight = maxHeight;
+		result.ticks = logic.getTickCount();
+	}
+}
@@ -0,0 +1,262 @@
+package tetris.results;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import tetris.replay.ReplayFormat;
+
+/**
+ * Streams game results to a file from any number of threads. Results are put into a bounded ring of
+ * pre-allocated rows without locking, from which a background thread encodes them into column blocks
+ * (see ResultFormat) or CSV lines and writes them out. Memory use doesn't depend on the number of rows,
+ * threads putting results wait when the writer falls a whole ring behind.
+ *
+ */
+public class ResultExporter implements Runnable {
+	
+	/**
+	 * Default number of rows the ring holds
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 14;
+	
+	private static final int COLUMN_COUNT = ResultFormat.COLUMNS.length;
+	private static final long kWaitNanos = 100000;
+	private static final long kIdleNanos = 1000000;
+	
+	private final boolean csv;
+	private final FileChannel channel;
+	private final Writer csvWriter;
+	
+	// ring of rows: values of row claimed as sequence s are at (s & mask)*COLUMN_COUNT
+	private final int mask;
+	private final long[] rows;
+	private final AtomicLongArray published; // sequence + 1 of row written to slot
+	private final AtomicLong tail = new AtomicLong(); // next sequence to claim
+	private final AtomicLong head = new AtomicLong(); // next sequence to write, advanced by writer
+	
+	// block being encoded by the writer thread
+	private final ByteBuffer[] columns = new ByteBuffer[COLUMN_COUNT];
+	private final ByteBuffer lengths = ByteBuffer.allocate(4);
+	private int blockRows;
+	private volatile long writtenRows;
+	
+	private volatile boolean closing;
+	private volatile IOException failure;
+	private final Thread thread;
+	
+	/**
+	 * Creates exporter with ring of default capacity
+	 * @param path Path to created file, it's overwritten if it exists
+	 * @param csv Whether to write CSV instead of the binary format
+	 * @throws IOException if file can't be created
+	 */
+	public ResultExporter(Path path, boolean csv) throws IOException
+	{
+		this(path, csv, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Designated constructor, starts the writer thread
+	 * @param path Path to created file, it's overwritten if it exists
+	 * @param csv Whether to write CSV instead of the binary format
+	 * @param capacity Number of rows in the ring, must be a power of two
+	 * @throws IOException if file can't be created
+	 */
+	public ResultExporter(Path path, boolean csv, int capacity) throws IOException
+	{
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.csv = csv;
+		this.mask = capacity - 1;
+		this.rows = new long[capacity*COLUMN_COUNT];
+		this.published = new AtomicLongArray(capacity);
+		
+		if (csv) {
+			channel = null;
+			csvWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path.toFile()), StandardCharsets.US_ASCII), 1 << 16);
+			ResultFormat.writeCsvHeader(csvWriter);
+		} else {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			csvWriter = null;
+			
+			ByteBuffer header = ByteBuffer.allocate(ResultFormat.HEADER_BYTES);
+			header.putInt(ResultFormat.MAGIC);
+			header.put((byte)ResultFormat.VERSION);
+			header.put((byte)COLUMN_COUNT);
+			header.flip();
+			write(header);
+			for (int column = 0; column < COLUMN_COUNT; column++) {
+				columns[column] = ByteBuffer.allocateDirect(ResultFormat.maxColumnSize(ResultFormat.BLOCK_ROWS));
+			}
+		}
+		
+		thread = new Thread(this, "Result exporter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Puts a result to be written, waiting while the ring is full. May be called from any thread.
+	 * @param result Result, its values are copied
+	 */
+	public void put(GameResult result)
+	{
+		if (closing) {
+			throw new IllegalStateException("Exporter is closed");
+		}
+		
+		long sequence = tail.getAndIncrement();
+		while (sequence - head.get() > mask) {
+			LockSupport.parkNanos(kWaitNanos); // writer is a whole ring behind
+		}
+		
+		int offset = (int)(sequence & mask)*COLUMN_COUNT;
+		rows[offset] = result.seed;
+		rows[offset + 1] = result.score;
+		rows[offset + 2] = result.pieces;
+		for (int i = 0; i < GameResult.MAX_MULTIPLICITY; i++) {
+			rows[offset + 3 + i] = result.clears[i];
+		}
+		rows[offset + 3 + GameResult.MAX_MULTIPLICITY] = result.maxHeight;
+		rows[offset + 4 + GameResult.MAX_MULTIPLICITY] = result.ticks;
+		published.lazySet((int)(sequence & mask), sequence + 1); // publishes the row
+	}
+	
+	/**
+	 * Writes all the results put so far, including an incomplete last block, and closes the file.
+	 * Results must not be put during or after closing.
+	 * @throws IOException if writing failed, results put since the failure were discarded
+	 */
+	public void close() throws IOException
+	{
+		closing = true;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if (csv) {
+			csvWriter.close();
+		} else {
+			channel.close();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Number of rows written to the file so far
+	 * @return row count
+	 */
+	public long getWrittenRows()
+	{
+		return writtenRows;
+	}
+	
+	@Override
+	public void run()
+	{
+		while (true) {
+			// closing is read first, rows put before close() are then seen by drain()
+			boolean closed = closing;
+			if (drain() == 0) {
+				if (closed) {
+					break;
+				}
+				LockSupport.parkNanos(kIdleNanos);
+			}
+		}
+		
+		if (!csv && blockRows > 0 && failure == null) {
+			try {
+				writeBlock();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+	
+	private int drain()
+	{
+		int count = 0;
+		long sequence = head.get();
+		while (published.get((int)(sequence & mask)) == sequence + 1) {
+			// after a failure rows are still consumed, so that threads putting them don't wait forever
+			if (failure == null) {
+				try {
+					writeRow((int)(sequence & mask)*COLUMN_COUNT);
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			head.lazySet(++sequence); // frees the slot
+			count++;
+		}
+		return count;
+	}
+	
+	private void writeRow(int offset) throws IOException
+	{
+		if (csv) {
+			ResultFormat.writeCsvRow(csvWriter, rows, offset);
+			writtenRows++;
+		} else {
+			encodeRow(offset);
+		}
+	}
+	
+	private void encodeRow(int offset) throws IOException
+	{
+		columns[ResultFormat.SEED].putLong(rows[offset + ResultFormat.SEED]);
+		for (int column = 1; column < COLUMN_COUNT; column++) {
+			ReplayFormat.putVarLong(columns[column], rows[offset + column]);
+		}
+		
+		if (++blockRows == ResultFormat.BLOCK_ROWS) {
+			writeBlock();
+		}
+	}
+	
+	private void writeBlock() throws IOException
+	{
+		lengths.clear();
+		lengths.putInt(blockRows);
+		lengths.flip();
+		write(lengths);
+		
+		for (ByteBuffer column : columns) {
+			column.flip();
+			lengths.clear();
+			lengths.putInt(column.remaining());
+			lengths.flip();
+			write(lengths);
+			write(column);
+			column.clear();
+		}
+		writtenRows += blockRows;
+		blockRows = 0;
+	}
+	
+	private void write(ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package tetris.results;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import tetris.replay.ReplayFormat;
+
+/**
+ * Constants and decoding of the columnar results file.
+ * 
+ * The file starts with a header: magic bytes "T3DS", format version and number of columns (bytes).
+ * It's followed by blocks of up to BLOCK_ROWS rows, each being the number of rows (int) followed by
+ * every column in turn: its length in bytes (int) and its values. The seed column holds 8 byte values,
+ * all the others unsigned varints (see ReplayFormat.putVarLong). A block is written only when
+ * complete, a file cut short by a crash is read up to its last complete block. All the fixed
+ * width values are big endian.
+ *
+ */
+public final class ResultFormat {
+	
+	public static final int MAGIC = 0x54334453; // "T3DS"
+	public static final int VERSION = 1;
+	public static final int BLOCK_ROWS = 16384;
+	
+	/**
+	 * Names of the columns, in the order they are stored
+	 */
+	public static final String[] COLUMNS = {"seed", "score", "pieces", "clears1", "clears2", "clears3", "clears4",
+			"maxHeight", "ticks"};
+	
+	static final int HEADER_BYTES = 6;
+	static final int SEED = 0;
+	
+	private ResultFormat() {
+	}
+	
+	/**
+	 * Converts a results file to CSV
+	 * @param args Path to results file, CSV is written to standard output
+	 * @throws IOException if file can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+		long rows = toCsv(Paths.get(args[0]), out);
+		out.flush();
+		System.err.println(rows + " rows");
+	}
+	
+	/**
+	 * Upper bound of bytes taken by a column of a block
+	 * @param rows Number of rows in block
+	 * @return Number of bytes
+	 */
+	static int maxColumnSize(int rows)
+	{
+		return rows*ReplayFormat.MAX_VARINT_BYTES;
+	}
+	
+	/**
+	 * Writes a line with the names of columns
+	 * @param out Destination
+	 * @throws IOException if writing fails
+	 */
+	static void writeCsvHeader(Writer out) throws IOException
+	{
+		for (int column = 0; column < COLUMNS.length; column++) {
+			out.write(column == 0 ? "" : ",");
+			out.write(COLUMNS[column]);
+		}
+		out.write('\n');
+	}
+	
+	/**
+	 * Writes a line with values of a row
+	 * @param out Destination
+	 * @param values Values of the row's columns
+	 * @param offset Index of the row's first value in values
+	 * @throws IOException if writing fails
+	 */
+	static void writeCsvRow(Writer out, long[] values, int offset) throws IOException
+	{
+		for (int column = 0; column < COLUMNS.length; column++) {
+			out.write(column == 0 ? "" : ",");
+			out.write(Long.toString(values[offset + column]));
+		}
+		out.write('\n');
+	}
+	
+	/**
+	 * Converts a results file to CSV, reading it a block at a time
+	 * @param path Path to results file
+	 * @param out Destination of CSV, including the header line
+	 * @return Number of rows converted
+	 * @throws IOException if file can't be read or isn't a results file
+	 */
+	public static long toCsv(Path path, Writer out) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(channel, header);
+			if (header.getInt(0) != MAGIC || header.get(4) != VERSION || header.get(5) != COLUMNS.length) {
+				throw new IOException("Not a results file");
+			}
+			writeCsvHeader(out);
+			
+			ByteBuffer block = ByteBuffer.allocate(4 + COLUMNS.length*(4 + maxColumnSize(BLOCK_ROWS)));
+			long[] values = new long[BLOCK_ROWS*COLUMNS.length];
+			long total = 0;
+			
+			ByteBuffer length = ByteBuffer.allocate(4);
+			while (true) {
+				length.clear();
+				if (channel.read(length) <= 0) {
+					break;
+				}
+				
+				int rows;
+				try {
+					readFully(channel, length);
+					rows = length.getInt(0);
+					if (rows <= 0 || rows > BLOCK_ROWS) {
+						throw new IOException("Corrupted block");
+					}
+					
+					for (int column = 0; column < COLUMNS.length; column++) {
+						length.clear();
+						readFully(channel, length);
+						block.clear();
+						block.limit(length.getInt(0));
+						readFully(channel, block);
+						block.flip();
+						for (int row = 0; row < rows; row++) {
+							values[row*COLUMNS.length + column] = column == SEED ? block.getLong() : ReplayFormat.getVarLong(block);
+						}
+					}
+				} catch (EOFException e) {
+					break; // block being written when the file was cut short
+				}
+				
+				for (int row = 0; row < rows; row++) {
+					writeCsvRow(out, values, row*COLUMNS.length);
+				}
+				total += rows;
+			}
+			return total;
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Results file cut short");
+			}
+		}
+	}
+}
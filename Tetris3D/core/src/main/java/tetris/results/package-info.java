@@ -0,0 +1,5 @@
+/**
+ * This package contains recording of per-game results of batch runs: collecting them from games as
+ * they are played and streaming them to columnar binary or CSV files.
+ */
+package tetris.results;
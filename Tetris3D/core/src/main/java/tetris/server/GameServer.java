@@ -0,0 +1,244 @@
+package tetris.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadFactory;
+
+import tetris.GameLogic;
+import tetris.Input;
+import tetris.SeededRandom;
+import tetris.Simulation;
+import tetris.metrics.Histogram;
+import tetris.results.ResultExporter;
+
+/**
+ * Headless server hosting a game for every connected client. Each connection is served by its own
+ * virtual thread doing blocking I/O, the games are ticked by a TickScheduler.
+ *
+ */
+public class GameServer implements Runnable {
+	
+	private static final Input[] INPUTS = Input.values();
+	private static final long kReportIntervalMillis = 10000;
+	
+	private final ServerSocketChannel serverChannel;
+	private final TickScheduler scheduler;
+	private final ThreadFactory connectionThreads = Thread.ofVirtual().name("connection-", 0).factory();
+	private final SeededRandom seeds = new SeededRandom(System.nanoTime());
+	private final ResultExporter results;
+	private volatile boolean running;
+	
+	/**
+	 * Runs the server until killed, printing tick jitter periodically
+	 * @param args Port to listen on (0 picks a free one), optionally the number of scheduler shards and
+	 * file to which results of finished games are exported (as CSV if its name ends with .csv)
+	 * @throws IOException if socket can't be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		int shards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final ResultExporter results = args.length > 2 ? new ResultExporter(Paths.get(args[2]), args[2].endsWith(".csv")) : null;
+		if (results != null) {
+			// the server runs until killed, the last partial block is written on the way out
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					try {
+						results.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+		
+		GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), shards, results);
+		Thread.ofPlatform().name("Game server").daemon(true).start(server);
+		System.out.println("Listening on port " + server.getPort() + " with " + shards + " shards");
+		
+		Histogram jitter = new Histogram("tick jitter");
+		while (true) {
+			try {
+				Thread.sleep(kReportIntervalMillis);
+			} catch (InterruptedException e) {
+				break;
+			}
+			jitter.reset();
+			server.getScheduler().drainJitter(jitter);
+			System.out.println(server.getScheduler().getSessionCount() + " sessions, " + jitter.summary());
+		}
+	}
+	
+	/**
+	 * Creates server which doesn't export results
+	 * @param address Address to listen on
+	 * @param shardCount Number of threads ticking the games
+	 * @throws IOException if socket can't be bound
+	 */
+	public GameServer(InetSocketAddress address, int shardCount) throws IOException
+	{
+		this(address, shardCount, null);
+	}
+	
+	/**
+	 * Designated constructor, binds the listening socket
+	 * @param address Address to listen on
+	 * @param shardCount Number of threads ticking the games
+	 * @param results Exporter receiving results of finished games, or null
+	 * @throws IOException if socket can't be bound
+	 */
+	public GameServer(InetSocketAddress address, int shardCount, ResultExporter results) throws IOException
+	{
+		this.results = results;
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address, 1024);
+		scheduler = new TickScheduler(shardCount, Simulation.NANOS_PER_TICK);
+	}
+	
+	/**
+	 * Accepts connections until stop() is called
+	 */
+	@Override
+	public void run()
+	{
+		running = true;
+		scheduler.start();
+		
+		try {
+			while (running) {
+				final SocketChannel channel = serverChannel.accept();
+				connectionThreads.newThread(new Runnable() {
+					@Override
+					public void run() {
+						serve(channel);
+					}
+				}).start();
+			}
+		} catch (ClosedChannelException e) {
+			// stopped
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			scheduler.stop();
+		}
+	}
+	
+	/**
+	 * Stops accepting connections and ticking the games
+	 */
+	public void stop()
+	{
+		running = false;
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Port the server listens on
+	 * @return local port
+	 */
+	public int getPort()
+	{
+		return serverChannel.socket().getLocalPort();
+	}
+	
+	/**
+	 * Scheduler ticking the games
+	 * @return scheduler
+	 */
+	public TickScheduler getScheduler()
+	{
+		return scheduler;
+	}
+	
+	private void serve(SocketChannel channel)
+	{
+		GameSession session;
+		synchronized (seeds) {
+			session = new GameSession(seeds.nextLong(), results);
+		}
+		scheduler.add(session);
+		
+		ByteBuffer in = ByteBuffer.allocate(1 + 8);
+		ByteBuffer out = ByteBuffer.allocate(Math.max(ServerProtocol.HELLO_BYTES, ServerProtocol.STATUS_BYTES));
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			
+			out.put((byte)ServerProtocol.HELLO);
+			out.putInt(GameLogic.WIDTH);
+			out.putInt(GameLogic.DEPTH);
+			out.putInt(GameLogic.HEIGHT);
+			out.putInt(Simulation.TICKS_PER_SECOND);
+			write(channel, out);
+			
+			while (true) {
+				read(channel, in, 1);
+				int type = in.get(0);
+				
+				switch (type) {
+				case ServerProtocol.INPUT:
+					read(channel, in, 2);
+					int input = in.get(0);
+					if (input < 0 || input >= INPUTS.length) {
+						throw new IOException("Unknown input " + input);
+					}
+					session.postInput(INPUTS[input], in.get(1) != 0);
+					break;
+				case ServerProtocol.NEW_GAME:
+					read(channel, in, 8);
+					session.requestNewGame(in.getLong(0));
+					break;
+				case ServerProtocol.STATUS:
+					out.clear();
+					out.put((byte)ServerProtocol.STATUS);
+					session.putStatus(out);
+					write(channel, out);
+					break;
+				default:
+					throw new IOException("Unknown message " + type);
+				}
+			}
+		} catch (EOFException e) {
+			// client disconnected
+		} catch (IOException e) {
+			// connection broken or protocol violated, the session is dropped either way
+		} finally {
+			session.close();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+	
+	private static void read(SocketChannel channel, ByteBuffer buffer, int length) throws IOException
+	{
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+	
+	private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package tetris.server;
+
+import java.nio.ByteBuffer;
+
+import tetris.GameLogic;
+import tetris.Input;
+import tetris.results.GameResult;
+import tetris.results.ResultCollector;
+import tetris.results.ResultExporter;
+
+/**
+ * A single game hosted by the server. Inputs are posted by the connection's thread and applied by
+ * the scheduler thread owning the session, which publishes a summary of the game after every tick.
+ *
+ */
+public class GameSession {
+	
+	// sessions are fed by a network connection, they don't need deep input queues
+	private static final int kInputQueueCapacity = 16;
+	
+	private final GameLogic logic = new GameLogic(kInputQueueCapacity);
+	private final ResultExporter results;
+	private final ResultCollector collector;
+	private final GameResult result;
+	
+	private volatile boolean closed;
+	private volatile boolean newGameRequested;
+	private volatile long requestedSeed;
+	
+	// published after every tick for the connection's thread, statusVersion is odd while they're written
+	private volatile int statusVersion;
+	private volatile long tick;
+	private volatile int score;
+	private volatile int levels;
+	private volatile boolean isOver;
+	private volatile long checksum;
+	
+	/**
+	 * Creates session whose results are not exported
+	 * @param seed Seed of the first game
+	 */
+	public GameSession(long seed)
+	{
+		this(seed, null);
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param seed Seed of the first game
+	 * @param results Exporter receiving results of finished games, or null
+	 */
+	public GameSession(long seed, ResultExporter results)
+	{
+		this.results = results;
+		if (results != null) {
+			collector = new ResultCollector();
+			result = new GameResult();
+			logic.setBoardListener(collector);
+		} else {
+			collector = null;
+			result = null;
+		}
+		logic.newGame(seed);
+	}
+	
+	/**
+	 * Connection side. Passes input to be applied during the next tick.
+	 * @param input Performed input
+	 * @param pressed true if key was pressed, false if released
+	 * @return false if too many inputs are pending and this one was dropped
+	 */
+	public boolean postInput(Input input, boolean pressed)
+	{
+		return logic.getInputQueue().offer(input, pressed, System.nanoTime());
+	}
+	
+	/**
+	 * Connection side. Asks for a new game to be started at the next tick.
+	 * @param seed Seed of the new game
+	 */
+	public void requestNewGame(long seed)
+	{
+		requestedSeed = seed;
+		newGameRequested = true;
+	}
+	
+	/**
+	 * Connection side. Marks session as finished, it's dropped by the scheduler at the next tick.
+	 */
+	public void close()
+	{
+		closed = true;
+	}
+	
+	/**
+	 * Scheduler side. Performs one tick of the game.
+	 * @param nanoTime Scheduled time of the tick
+	 */
+	void tick(long nanoTime)
+	{
+		if (newGameRequested) {
+			newGameRequested = false;
+			logic.newGame(requestedSeed);
+		} else {
+			logic.tick(nanoTime);
+		}
+		
+		if (results != null && logic.isOver() && !isOver) {
+			collector.fill(logic, result);
+			results.put(result);
+		}
+		
+		statusVersion++;
+		levels = logic.getReducedLevelCount();
+		score = logic.getScore();
+		isOver = logic.isOver();
+		checksum = logic.getChecksum();
+		tick = logic.getTickCount();
+		statusVersion++;
+	}
+	
+	/**
+	 * Whether the session was closed
+	 * @return true if closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Connection side. Writes the state of current game as of the last tick, in the order of the
+	 * STATUS answer: tick (long), score and reduced levels (ints), checksum (long, see
+	 * GameLogic.getChecksum()) and 1 if the game is over or 0 (byte). All the values come from the
+	 * same tick, so that a client can compare the checksum with its own at that tick.
+	 * @param buffer Destination buffer
+	 */
+	public void putStatus(ByteBuffer buffer)
+	{
+		int position = buffer.position();
+		while (true) {
+			int version = statusVersion;
+			if ((version & 1) != 0) {
+				Thread.onSpinWait(); // scheduler is in the middle of publishing
+				continue;
+			}
+			
+			buffer.position(position);
+			buffer.putLong(tick);
+			buffer.putInt(score);
+			buffer.putInt(levels);
+			buffer.putLong(checksum);
+			buffer.put((byte)(isOver ? 1 : 0));
+			if (statusVersion == version) {
+				return;
+			}
+		}
+	}
+}
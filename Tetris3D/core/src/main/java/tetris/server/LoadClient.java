@@ -0,0 +1,122 @@
+package tetris.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tetris.Input;
+
+/**
+ * Load generator for GameServer: opens many connections, each on its own virtual thread, which
+ * press random keys a few times a second and poll the status of their games.
+ *
+ */
+public class LoadClient {
+	
+	private static final Input[] INPUTS = Input.values();
+	
+	/**
+	 * Connects given number of clients and runs them for given time
+	 * @param args Host, port, number of clients and duration in seconds
+	 * @throws InterruptedException if interrupted while waiting for clients
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+		int clients = Integer.parseInt(args[2]);
+		final long endTime = System.currentTimeMillis() + 1000L*Integer.parseInt(args[3]);
+		
+		final AtomicLong statuses = new AtomicLong();
+		final AtomicLong finishedGames = new AtomicLong();
+		final AtomicLong failures = new AtomicLong();
+		
+		Thread[] threads = new Thread[clients];
+		for (int i = 0; i < clients; i++) {
+			threads[i] = Thread.ofVirtual().start(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						play(address, endTime, statuses, finishedGames);
+					} catch (IOException e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		System.out.println(clients + " clients: " + statuses.get() + " status replies, " + finishedGames.get()
+				+ " games finished, " + failures.get() + " failed connections");
+	}
+	
+	private static void play(InetSocketAddress address, long endTime, AtomicLong statuses, AtomicLong finishedGames)
+			throws IOException
+	{
+		SocketChannel channel = SocketChannel.open(address);
+		ByteBuffer in = ByteBuffer.allocate(Math.max(ServerProtocol.HELLO_BYTES, ServerProtocol.STATUS_BYTES));
+		ByteBuffer out = ByteBuffer.allocate(1 + 8);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		
+		try {
+			read(channel, in, ServerProtocol.HELLO_BYTES);
+			
+			int step = 0;
+			while (System.currentTimeMillis() < endTime) {
+				Thread.sleep(100 + random.nextInt(200));
+				
+				Input input = INPUTS[1 + random.nextInt(INPUTS.length - 1)];
+				for (int pressed = 1; pressed >= 0; pressed--) {
+					out.clear();
+					out.put((byte)ServerProtocol.INPUT);
+					out.put((byte)input.ordinal());
+					out.put((byte)pressed);
+					write(channel, out);
+				}
+				
+				if (++step % 4 == 0) {
+					out.clear();
+					out.put((byte)ServerProtocol.STATUS);
+					write(channel, out);
+					read(channel, in, ServerProtocol.STATUS_BYTES);
+					statuses.incrementAndGet();
+					
+					if (in.get(ServerProtocol.STATUS_BYTES - 1) != 0) {
+						finishedGames.incrementAndGet();
+						out.clear();
+						out.put((byte)ServerProtocol.NEW_GAME);
+						out.putLong(random.nextLong());
+						write(channel, out);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private static void read(SocketChannel channel, ByteBuffer buffer, int length) throws IOException
+	{
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+	
+	private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package tetris.server;
+
+/**
+ * Constants of the binary protocol between game server and its clients.
+ * 
+ * Upon connection the server sends HELLO: board width, depth and height and ticks per second (ints).
+ * Client messages start with a type byte: INPUT is followed by input ordinal and 1 if pressed or 0 if
+ * released (bytes), NEW_GAME by the seed (long), STATUS has no payload. The server answers STATUS with
+ * STATUS: tick (long), score and reduced levels (ints), state checksum (long) and 1 if the game is over
+ * or 0 (byte). The game starts with a random seed and ends when the connection is closed. All values
+ * are big endian.
+ *
+ */
+public final class ServerProtocol {
+	
+	public static final int HELLO = 0;
+	public static final int INPUT = 1;
+	public static final int NEW_GAME = 2;
+	public static final int STATUS = 3;
+	
+	public static final int HELLO_BYTES = 1 + 4*4;
+	public static final int STATUS_BYTES = 1 + 8 + 4 + 4 + 8 + 1;
+	
+	private ServerProtocol() {
+	}
+}
@@ -0,0 +1,188 @@
+package tetris.server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import tetris.metrics.Histogram;
+
+/**
+ * Ticks any number of GameSessions at a fixed rate using a few platform threads. Sessions are split
+ * into shards, each ticked by its own thread against absolute deadlines, and the shards are offset
+ * within the tick period so that they don't all wake up at once. Lateness of every session's tick
+ * against its deadline is recorded as jitter.
+ *
+ */
+public class TickScheduler {
+	
+	// parking is inaccurate, the last part of the wait is spent spinning
+	private static final long kSpinNanos = 100000;
+	// a shard falling behind by more than that many ticks drops them instead of catching up
+	private static final int kMaxCatchUpTicks = 5;
+	
+	private final class Shard implements Runnable {
+		final ConcurrentLinkedQueue<GameSession> added = new ConcurrentLinkedQueue<GameSession>();
+		final Histogram jitter = new Histogram("tick jitter");
+		final long phase;
+		GameSession[] sessions = new GameSession[64];
+		int sessionCount;
+		volatile int size;
+		
+		Shard(long phase)
+		{
+			this.phase = phase;
+		}
+		
+		@Override
+		public void run()
+		{
+			long deadline = System.nanoTime() + phase;
+			
+			while (running) {
+				waitUntil(deadline);
+				addSessions();
+				
+				int alive = 0;
+				for (int i = 0; i < sessionCount; i++) {
+					GameSession session = sessions[i];
+					if (session.isClosed()) {
+						continue;
+					}
+					jitter.record(System.nanoTime() - deadline);
+					session.tick(deadline);
+					sessions[alive++] = session; // compacts closed sessions away
+				}
+				for (int i = alive; i < sessionCount; i++) {
+					sessions[i] = null;
+				}
+				sessionCount = alive;
+				size = alive + added.size();
+				
+				deadline += nanosPerTick;
+				long now = System.nanoTime();
+				if (now - deadline > kMaxCatchUpTicks*nanosPerTick) {
+					deadline += (now - deadline) / nanosPerTick * nanosPerTick; // too far behind, skip ticks
+				}
+			}
+		}
+		
+		private void addSessions()
+		{
+			GameSession session;
+			while ((session = added.poll()) != null) {
+				if (sessionCount == sessions.length) {
+					GameSession[] grown = new GameSession[sessionCount*2];
+					System.arraycopy(sessions, 0, grown, 0, sessionCount);
+					sessions = grown;
+				}
+				sessions[sessionCount++] = session;
+			}
+		}
+	}
+	
+	private final long nanosPerTick;
+	private final Shard[] shards;
+	private final Thread[] threads;
+	private final AtomicInteger nextShard = new AtomicInteger();
+	private volatile boolean running;
+	
+	/**
+	 * Designated constructor
+	 * @param shardCount Number of threads ticking sessions
+	 * @param nanosPerTick Period of ticks
+	 */
+	public TickScheduler(int shardCount, long nanosPerTick)
+	{
+		this.nanosPerTick = nanosPerTick;
+		shards = new Shard[shardCount];
+		threads = new Thread[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(i*nanosPerTick/shardCount);
+		}
+	}
+	
+	/**
+	 * Starts the shard threads
+	 */
+	public void start()
+	{
+		running = true;
+		for (int i = 0; i < shards.length; i++) {
+			threads[i] = new Thread(shards[i], "Tick shard " + i);
+			threads[i].setDaemon(true);
+			threads[i].setPriority(Thread.MAX_PRIORITY);
+			threads[i].start();
+		}
+	}
+	
+	/**
+	 * Stops the shard threads and waits for them to finish
+	 */
+	public void stop()
+	{
+		running = false;
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Adds a session to the shard with the fewest sessions, it's ticked until closed
+	 * @param session Added session
+	 */
+	public void add(GameSession session)
+	{
+		// round robin start keeps ties from always going to the first shard
+		int start = nextShard.getAndIncrement();
+		Shard best = shards[Math.floorMod(start, shards.length)];
+		for (int i = 1; i < shards.length; i++) {
+			Shard shard = shards[Math.floorMod(start + i, shards.length)];
+			if (shard.size < best.size) {
+				best = shard;
+			}
+		}
+		best.size++; // racy, but only until the shard recounts its sessions at the next tick
+		best.added.add(session);
+	}
+	
+	/**
+	 * Number of sessions being ticked
+	 * @return session count
+	 */
+	public int getSessionCount()
+	{
+		int count = 0;
+		for (Shard shard : shards) {
+			count += shard.size;
+		}
+		return count;
+	}
+	
+	/**
+	 * Collects the jitter of all shards into one histogram and resets them. Ticks recorded while
+	 * collecting may be lost.
+	 * @param total Histogram receiving jitter of ticks since the previous call
+	 */
+	public void drainJitter(Histogram total)
+	{
+		for (Shard shard : shards) {
+			total.add(shard.jitter);
+			shard.jitter.reset();
+		}
+	}
+	
+	private static void waitUntil(long deadline)
+	{
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > kSpinNanos) {
+			LockSupport.parkNanos(remaining - kSpinNanos);
+		}
+		while (deadline - System.nanoTime() > 0) {
+			Thread.onSpinWait();
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * This package contains the headless server hosting many authoritative games at once. Every
+ * connection is served by its own virtual thread, while the games are ticked by a small number of
+ * scheduler threads, each owning a shard of the sessions.
+ */
+package tetris.server;
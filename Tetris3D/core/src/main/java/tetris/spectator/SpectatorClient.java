@@ -0,0 +1,227 @@
+package tetris.spectator;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import tetris.Block;
+import tetris.BlockFactory;
+import tetris.Board;
+import tetris.Color;
+import tetris.Element;
+import tetris.GameLogic;
+import tetris.replay.Checkpoint;
+import tetris.replay.ReplayFormat;
+
+/**
+ * Spectator side of the stream, keeps a copy of the spectated game up to date by applying received
+ * frames. The copy is held by a GameLogic which is never ticked.
+ *
+ */
+public class SpectatorClient {
+	
+	private static final Color[] COLORS = Color.values();
+	
+	private final GameLogic game;
+	private final Checkpoint checkpoint = new Checkpoint();
+	private final ByteBuffer lengthBuffer = ByteBuffer.allocate(SpectatorFormat.LENGTH_BYTES);
+	private final ByteBuffer frameBuffer;
+	
+	private boolean synced;
+	private long tick;
+	private Block block;
+	private int score;
+	private int levels;
+	private boolean isOver;
+	
+	/**
+	 * Connects to a server and prints the state of spectated game after every frame
+	 * @param args Host and port of the server, optionally followed by width, depth and height of its board
+	 * @throws IOException if connection fails
+	 */
+	public static void main(String[] args) throws IOException {
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(args[0], Integer.parseInt(args[1])));
+		SpectatorClient client = args.length > 4 ? new SpectatorClient(Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Integer.parseInt(args[4])) : new SpectatorClient();
+		while (true) {
+			client.readFrame(channel);
+			System.out.println("Tick " + client.getTick() + ": score " + client.getScore() + ", "
+					+ client.getBoard().getElementCount() + " elements" + (client.isOver() ? ", game over" : ""));
+		}
+	}
+	
+	/**
+	 * Creates client of a game on board of default dimensions
+	 */
+	public SpectatorClient()
+	{
+		this(GameLogic.WIDTH, GameLogic.DEPTH, GameLogic.HEIGHT);
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param width Width of spectated game's board
+	 * @param depth Depth of spectated game's board
+	 * @param height Height of spectated game's board
+	 */
+	public SpectatorClient(int width, int depth, int height)
+	{
+		game = new GameLogic(width, depth, height);
+		frameBuffer = ByteBuffer.allocate(SpectatorFormat.maxFrameSize(width, depth, height));
+	}
+	
+	/**
+	 * Reads a frame from a blocking channel and applies it
+	 * @param channel Channel connected to SpectatorServer
+	 * @throws IOException if reading fails or the stream is malformed
+	 */
+	public void readFrame(SocketChannel channel) throws IOException
+	{
+		lengthBuffer.clear();
+		readFully(channel, lengthBuffer);
+		int length = lengthBuffer.getInt(0);
+		if (length > frameBuffer.capacity()) {
+			throw new IOException("Frame too big: " + length);
+		}
+		
+		frameBuffer.clear();
+		frameBuffer.limit(length);
+		readFully(channel, frameBuffer);
+		frameBuffer.flip();
+		apply(frameBuffer);
+	}
+	
+	/**
+	 * Applies a single frame, without its length
+	 * @param frame Frame between position and limit
+	 * @throws IOException if the frame doesn't follow the previous ones
+	 */
+	public void apply(ByteBuffer frame) throws IOException
+	{
+		int type = frame.get();
+		tick = ReplayFormat.getVarLong(frame);
+		
+		if (type == SpectatorFormat.KEYFRAME) {
+			int flags = frame.get();
+			checkpoint.read(frame, game);
+			block = game.getBlock();
+			score = game.getScore();
+			levels = game.getReducedLevelCount();
+			isOver = (flags & SpectatorFormat.FLAG_OVER) != 0;
+			synced = true;
+			return;
+		}
+		if (type != SpectatorFormat.DELTA) {
+			throw new IOException("Unknown frame type " + type);
+		}
+		if (!synced) {
+			throw new IOException("Delta received before keyframe");
+		}
+		
+		int flags = frame.get();
+		Board board = game.getBoard();
+		if ((flags & SpectatorFormat.FLAG_BLOCK) != 0) {
+			long shape = ReplayFormat.getVarLong(frame);
+			int orientationAndColor = frame.get() & 0xFF;
+			int x = (int)ReplayFormat.getSignedVarLong(frame);
+			int y = (int)ReplayFormat.getSignedVarLong(frame);
+			int z = (int)ReplayFormat.getSignedVarLong(frame);
+			if (shape < 0 || shape >= BlockFactory.shapeCount()) {
+				throw new IOException("Unknown block shape " + shape);
+			}
+			block = BlockFactory.blockWithShape((int)shape, orientationAndColor & 0x1F, COLORS[orientationAndColor >>> 5], x, y, z);
+		}
+		if ((flags & SpectatorFormat.FLAG_LOCKED) != 0) {
+			int count = (int)ReplayFormat.getVarLong(frame);
+			for (int i = 0; i < count; i++) {
+				int x = (int)ReplayFormat.getVarLong(frame);
+				int y = (int)ReplayFormat.getVarLong(frame);
+				int z = (int)ReplayFormat.getVarLong(frame);
+				board.setElementAtLocation(x, y, z, Element.withColor(COLORS[(int)ReplayFormat.getVarLong(frame)]));
+			}
+		}
+		if ((flags & SpectatorFormat.FLAG_LEVELS) != 0) {
+			int count = (int)ReplayFormat.getVarLong(frame);
+			for (int i = 0; i < count; i++) {
+				ReplayFormat.getVarLong(frame); // heights are implied by locked elements
+			}
+			if (board.reduceLevels() != count) {
+				throw new IOException("Stream out of sync at tick " + tick);
+			}
+		}
+		if ((flags & SpectatorFormat.FLAG_SCORE) != 0) {
+			score = (int)ReplayFormat.getVarLong(frame);
+			levels = (int)ReplayFormat.getVarLong(frame);
+		}
+		if ((flags & SpectatorFormat.FLAG_OVER) != 0) {
+			isOver = true;
+		}
+	}
+	
+	private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Server closed the stream");
+			}
+		}
+	}
+	
+	/**
+	 * Whether a keyframe was received and the state below is valid
+	 * @return true if synchronized
+	 */
+	public boolean isSynced() {
+		return synced;
+	}
+	
+	/**
+	 * Tick of the last applied frame
+	 * @return tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Board of the spectated game
+	 * @return board
+	 */
+	public Board getBoard() {
+		return game.getBoard();
+	}
+	
+	/**
+	 * Falling block of the spectated game
+	 * @return block
+	 */
+	public Block getBlock() {
+		return block;
+	}
+	
+	/**
+	 * Score of the spectated game
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Number of levels reduced in the spectated game
+	 * @return reduced levels
+	 */
+	public int getLevels() {
+		return levels;
+	}
+	
+	/**
+	 * Whether the spectated game is over
+	 * @return true if game is over
+	 */
+	public boolean isOver() {
+		return isOver;
+	}
+}
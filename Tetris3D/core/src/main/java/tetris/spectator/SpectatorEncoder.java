@@ -0,0 +1,198 @@
+package tetris.spectator;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import tetris.Block;
+import tetris.Board;
+import tetris.BoardChanges;
+import tetris.BoardListener;
+import tetris.GameLogic;
+import tetris.replay.Checkpoint;
+import tetris.replay.ReplayFormat;
+
+/**
+ * Encodes every tick of a game into a single frame handed to SpectatorServer. Changes of the board
+ * are collected as they happen, so a delta is encoded in time proportional to the change.
+ * Must be set as board listener of the logic and called after every tick, on the thread running it.
+ *
+ */
+public class SpectatorEncoder implements BoardListener {
+	
+	/**
+	 * Default number of ticks between keyframes
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 120;
+	
+	private final SpectatorServer server;
+	private final int keyframeInterval;
+	private final Checkpoint checkpoint = new Checkpoint();
+	
+	// state sent in previous frame
+	private Block lastBlock;
+	private int lastScore;
+	private int lastLevels;
+	private boolean lastOver;
+	private long keyframeTick;
+	private boolean keyframeNeeded = true;
+	
+	// board changes since previous frame, as x, y, z, color ordinal quadruples and removed heights
+	private int[] lockedCells = new int[4*32];
+	private int lockedCount;
+	private int[] removedLevels = new int[8];
+	private int removedCount;
+	
+	/**
+	 * Designated constructor
+	 * @param server Server sending encoded frames
+	 * @param keyframeInterval Number of ticks between keyframes
+	 */
+	public SpectatorEncoder(SpectatorServer server, int keyframeInterval)
+	{
+		this.server = server;
+		this.keyframeInterval = keyframeInterval;
+	}
+	
+	@Override
+	public void boardChanged(Board board, BoardChanges changes)
+	{
+		switch (changes.getKind()) {
+		case CellsSet:
+			for (int i = 0; i < changes.getCellCount(); i++) {
+				if (4*lockedCount == lockedCells.length) {
+					int[] grown = new int[lockedCells.length*2];
+					System.arraycopy(lockedCells, 0, grown, 0, lockedCells.length);
+					lockedCells = grown;
+				}
+				int offset = 4*lockedCount++;
+				lockedCells[offset] = changes.getCellX(i);
+				lockedCells[offset + 1] = changes.getCellY(i);
+				lockedCells[offset + 2] = changes.getCellZ(i);
+				lockedCells[offset + 3] = changes.getCellColor(i).ordinal();
+			}
+			break;
+		case LevelsRemoved:
+			if (removedCount > 0 || removedCount + changes.getRemovedLevelCount() > removedLevels.length) {
+				keyframeNeeded = true; // heights of a second removal in a tick are shifted, not worth encoding
+				break;
+			}
+			for (int i = 0; i < changes.getRemovedLevelCount(); i++) {
+				removedLevels[removedCount++] = changes.getRemovedLevel(i);
+			}
+			break;
+		case Reset:
+			keyframeNeeded = true;
+			break;
+		}
+	}
+	
+	/**
+	 * Encodes the state after a completed tick (or a started game) and passes it to the server
+	 * @param logic Encoded game logic
+	 */
+	public void tickCompleted(GameLogic logic)
+	{
+		long tick = logic.getTickCount();
+		ByteBuffer frame = server.beginFrame();
+		if (frame == null) {
+			// server is behind, spectators will continue from the next keyframe
+			keyframeNeeded = true;
+			clearChanges();
+			return;
+		}
+		
+		boolean keyframe = keyframeNeeded || tick - keyframeTick >= keyframeInterval;
+		if (!keyframe) {
+			try {
+				if (!encodeDelta(logic, frame, tick)) {
+					clearChanges();
+					return; // nothing changed
+				}
+			} catch (BufferOverflowException e) {
+				keyframe = true;
+			}
+		}
+		
+		if (keyframe) {
+			frame.clear();
+			frame.position(SpectatorFormat.LENGTH_BYTES);
+			frame.put((byte)SpectatorFormat.KEYFRAME);
+			ReplayFormat.putVarLong(frame, tick);
+			frame.put((byte)(logic.isOver() ? SpectatorFormat.FLAG_OVER : 0));
+			checkpoint.write(logic, frame);
+			keyframeTick = tick;
+			keyframeNeeded = false;
+		}
+		
+		frame.putInt(0, frame.position() - SpectatorFormat.LENGTH_BYTES);
+		frame.flip();
+		server.commitFrame(keyframe);
+		
+		lastBlock = logic.getBlock();
+		lastScore = logic.getScore();
+		lastLevels = logic.getReducedLevelCount();
+		lastOver = logic.isOver();
+		clearChanges();
+	}
+	
+	private boolean encodeDelta(GameLogic logic, ByteBuffer frame, long tick)
+	{
+		Block block = logic.getBlock();
+		int flags = 0;
+		if (block != lastBlock) { // blocks are immutable, every move creates a new one
+			flags |= SpectatorFormat.FLAG_BLOCK;
+		}
+		if (lockedCount > 0) {
+			flags |= SpectatorFormat.FLAG_LOCKED;
+		}
+		if (removedCount > 0) {
+			flags |= SpectatorFormat.FLAG_LEVELS;
+		}
+		if (logic.getScore() != lastScore || logic.getReducedLevelCount() != lastLevels) {
+			flags |= SpectatorFormat.FLAG_SCORE;
+		}
+		if (logic.isOver() && !lastOver) {
+			flags |= SpectatorFormat.FLAG_OVER;
+		}
+		if (flags == 0) {
+			return false;
+		}
+		
+		frame.clear();
+		frame.position(SpectatorFormat.LENGTH_BYTES);
+		frame.put((byte)SpectatorFormat.DELTA);
+		ReplayFormat.putVarLong(frame, tick);
+		frame.put((byte)flags);
+		
+		if ((flags & SpectatorFormat.FLAG_BLOCK) != 0) {
+			ReplayFormat.putVarLong(frame, block.getShape());
+			frame.put((byte)(block.getOrientation() | block.getColor().ordinal() << 5));
+			ReplayFormat.putSignedVarLong(frame, block.getX());
+			ReplayFormat.putSignedVarLong(frame, block.getY());
+			ReplayFormat.putSignedVarLong(frame, block.getZ());
+		}
+		if ((flags & SpectatorFormat.FLAG_LOCKED) != 0) {
+			ReplayFormat.putVarLong(frame, lockedCount);
+			for (int i = 0; i < 4*lockedCount; i++) {
+				ReplayFormat.putVarLong(frame, lockedCells[i]);
+			}
+		}
+		if ((flags & SpectatorFormat.FLAG_LEVELS) != 0) {
+			ReplayFormat.putVarLong(frame, removedCount);
+			for (int i = 0; i < removedCount; i++) {
+				ReplayFormat.putVarLong(frame, removedLevels[i]);
+			}
+		}
+		if ((flags & SpectatorFormat.FLAG_SCORE) != 0) {
+			ReplayFormat.putVarLong(frame, logic.getScore());
+			ReplayFormat.putVarLong(frame, logic.getReducedLevelCount());
+		}
+		return true;
+	}
+	
+	private void clearChanges()
+	{
+		lockedCount = 0;
+		removedCount = 0;
+	}
+}
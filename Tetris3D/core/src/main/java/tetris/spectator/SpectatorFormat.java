@@ -0,0 +1,51 @@
+package tetris.spectator;
+
+import tetris.replay.Checkpoint;
+
+/**
+ * Constants of the spectator stream format.
+ * 
+ * The stream is a sequence of frames, each starting with its length (int, not counting the length
+ * itself), frame type (byte) and the tick (varint). A KEYFRAME carries flags (byte, only FLAG_OVER)
+ * and a Checkpoint of the game, which doesn't record whether the game is over.
+ * A DELTA carries flags (byte) followed by the parts present, in order of the flags: the falling
+ * block (shape as varint, orientation | color << 5 as byte, position as zigzag varints), locked elements
+ * (varint count, then x, y, z and color ordinal varints per element), removed levels (varint count,
+ * then varint heights in ascending order) and score (varints score and reduced levels). Ticks in which
+ * nothing changed are not sent. A spectator joining or falling behind is sent the latest keyframe.
+ * All the fixed width values are big endian. The stream has no header of its own, spectators start
+ * at a keyframe whose Checkpoint version and pieces fingerprint are checked.
+ *
+ */
+public final class SpectatorFormat {
+	
+	public static final int KEYFRAME = 1;
+	public static final int DELTA = 2;
+	
+	public static final int FLAG_BLOCK = 1;
+	public static final int FLAG_LOCKED = 2;
+	public static final int FLAG_LEVELS = 4;
+	public static final int FLAG_SCORE = 8;
+	public static final int FLAG_OVER = 16;
+	
+	/**
+	 * Bytes of frame length preceding every frame
+	 */
+	public static final int LENGTH_BYTES = 4;
+	
+	private SpectatorFormat() {
+	}
+	
+	/**
+	 * Upper bound of bytes taken by a frame, including its length. Deltas bigger than that
+	 * are sent as keyframes.
+	 * @param width Board width
+	 * @param depth Board's depth
+	 * @param height Board's height
+	 * @return Number of bytes
+	 */
+	public static int maxFrameSize(int width, int depth, int height)
+	{
+		return LENGTH_BYTES + 1 + 10 + 1 + Math.max(Checkpoint.maxSize(width, depth, height), 256);
+	}
+}
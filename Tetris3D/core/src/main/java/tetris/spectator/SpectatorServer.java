@@ -0,0 +1,362 @@
+package tetris.spectator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams frames encoded by SpectatorEncoder to any number of spectators, using non-blocking sockets
+ * served by a single thread. Frames are passed from the encoding thread through a ring of reusable
+ * slots and appended once to a circular log, from which every spectator is sent the bytes it hasn't
+ * received yet. Spectators that fall too far behind skip to the latest keyframe, those so slow that
+ * the log overwrites the frame they are in the middle of are disconnected.
+ *
+ */
+public class SpectatorServer implements Runnable {
+	
+	private static final int kFrameSlots = 64;
+	private static final int kLogBytes = 1 << 20;
+	// spectator further behind than that skips to the latest keyframe
+	private static final int kMaxBacklogBytes = 1 << 16;
+	
+	private static final class Spectator {
+		SocketChannel channel;
+		SelectionKey key;
+		ByteBuffer view; // of the log, owned by the spectator
+		long position = -1; // next byte of log to send, -1 while waiting for keyframe
+		long frameEnd = -1; // end of the frame being sent
+		boolean writePending;
+	}
+	
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	
+	// frames encoded but not appended to log yet
+	private final ByteBuffer[] slots = new ByteBuffer[kFrameSlots];
+	private final boolean[] slotKeyframes = new boolean[kFrameSlots];
+	private final AtomicLong head = new AtomicLong(); // next frame to append, written by server thread
+	private final AtomicLong tail = new AtomicLong(); // next free slot, written by encoding thread
+	
+	private final int logBytes; // holds a few keyframes even of the biggest boards
+	private final ByteBuffer log;
+	private final ByteBuffer discarded = ByteBuffer.allocateDirect(256);
+	private long logEnd;
+	private long keyframeStart = -1;
+	
+	private final ArrayList<Spectator> spectators = new ArrayList<Spectator>();
+	private volatile int spectatorCount;
+	private final AtomicLong skippedToKeyframe = new AtomicLong();
+	
+	private volatile boolean running;
+	private Thread thread;
+	
+	/**
+	 * Designated constructor, binds the listening socket
+	 * @param address Address to listen on, e.g. loopback with port 0 to pick a free one
+	 * @param maxFrameSize Maximum size of a frame, see SpectatorFormat.maxFrameSize()
+	 * @throws IOException if socket can't be bound
+	 */
+	public SpectatorServer(InetSocketAddress address, int maxFrameSize) throws IOException
+	{
+		logBytes = Math.max(kLogBytes, 4*maxFrameSize);
+		log = ByteBuffer.allocateDirect(logBytes);
+		for (int i = 0; i < kFrameSlots; i++) {
+			slots[i] = ByteBuffer.allocate(maxFrameSize);
+		}
+		
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+	
+	/**
+	 * Starts the thread serving spectators
+	 */
+	public void start()
+	{
+		running = true;
+		thread = new Thread(this, "Spectator server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops serving, disconnects all spectators and closes the listening socket
+	 */
+	public void stop()
+	{
+		running = false;
+		selector.wakeup();
+		
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Port the server listens on
+	 * @return local port
+	 */
+	public int getPort()
+	{
+		return serverChannel.socket().getLocalPort();
+	}
+	
+	/**
+	 * Number of connected spectators
+	 * @return spectator count
+	 */
+	public int getSpectatorCount()
+	{
+		return spectatorCount;
+	}
+	
+	/**
+	 * Number of times a spectator fell behind and skipped to the latest keyframe
+	 * @return skip count
+	 */
+	public long getSkippedToKeyframeCount()
+	{
+		return skippedToKeyframe.get();
+	}
+	
+	/**
+	 * Encoding side. Returns the slot into which next frame should be encoded.
+	 * @return Slot or null if all the slots are waiting to be sent
+	 */
+	ByteBuffer beginFrame()
+	{
+		long t = tail.get();
+		if (t - head.get() >= kFrameSlots) {
+			return null;
+		}
+		return slots[(int)(t % kFrameSlots)];
+	}
+	
+	/**
+	 * Encoding side. Passes the frame encoded into slot returned by beginFrame() to the server.
+	 * @param keyframe Whether the frame is a keyframe
+	 */
+	void commitFrame(boolean keyframe)
+	{
+		long t = tail.get();
+		slotKeyframes[(int)(t % kFrameSlots)] = keyframe;
+		tail.lazySet(t + 1); // publishes the slot
+		selector.wakeup();
+	}
+	
+	@Override
+	public void run()
+	{
+		try {
+			while (running) {
+				selector.select();
+				
+				appendFrames();
+				
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Spectator spectator = (Spectator)key.attachment();
+					if (key.isReadable()) {
+						discardInput(spectator);
+					}
+					if (key.isValid() && key.isWritable()) {
+						spectator.writePending = false;
+					}
+				}
+				
+				// spectators whose socket was full are sent only once it's writable
+				for (int i = spectators.size() - 1; i >= 0; i--) {
+					Spectator spectator = spectators.get(i);
+					if (!spectator.writePending) {
+						send(spectator);
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (int i = spectators.size() - 1; i >= 0; i--) {
+				close(spectators.get(i));
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	private void appendFrames()
+	{
+		long h = head.get();
+		long t = tail.get();
+		for (; h < t; h++) {
+			int slot = (int)(h % kFrameSlots);
+			ByteBuffer frame = slots[slot];
+			long frameStart = logEnd;
+			long newEnd = logEnd + frame.remaining();
+			
+			// spectators whose unsent bytes are about to be overwritten
+			for (int i = spectators.size() - 1; i >= 0; i--) {
+				Spectator spectator = spectators.get(i);
+				if (spectator.position >= 0 && spectator.position < newEnd - logBytes) {
+					if (spectator.position == spectator.frameEnd) {
+						skipToKeyframe(spectator, newEnd - logBytes);
+					} else {
+						close(spectator);
+					}
+				}
+			}
+			
+			int start = (int)(logEnd % logBytes);
+			int firstPart = Math.min(frame.remaining(), logBytes - start);
+			log.position(start);
+			log.put(frame.array(), frame.position(), firstPart);
+			log.position(0);
+			log.put(frame.array(), frame.position() + firstPart, frame.remaining() - firstPart);
+			logEnd = newEnd;
+			
+			if (slotKeyframes[slot]) {
+				keyframeStart = frameStart;
+				for (int i = spectators.size() - 1; i >= 0; i--) {
+					Spectator spectator = spectators.get(i);
+					if (spectator.position < 0) {
+						spectator.position = spectator.frameEnd = frameStart; // joined and waiting
+					}
+				}
+			}
+			head.lazySet(h + 1); // slot can be reused
+		}
+	}
+	
+	private void skipToKeyframe(Spectator spectator, long oldestValid)
+	{
+		if (keyframeStart >= oldestValid && keyframeStart > spectator.position) {
+			spectator.position = spectator.frameEnd = keyframeStart;
+		} else {
+			spectator.position = spectator.frameEnd = -1;
+		}
+		skippedToKeyframe.incrementAndGet();
+	}
+	
+	private void send(Spectator spectator)
+	{
+		try {
+			while (spectator.position >= 0 && spectator.position < logEnd) {
+				if (spectator.position == spectator.frameEnd && logEnd - spectator.position > kMaxBacklogBytes
+						&& keyframeStart > spectator.position) {
+					skipToKeyframe(spectator, logEnd - logBytes);
+					continue;
+				}
+				
+				int start = (int)(spectator.position % logBytes);
+				int length = (int)Math.min(logEnd - spectator.position, logBytes - start);
+				spectator.view.limit(start + length);
+				spectator.view.position(start);
+				int written = spectator.channel.write(spectator.view);
+				spectator.position += written;
+				
+				// frame boundaries are found by walking the length prefixes
+				while (spectator.frameEnd <= spectator.position && spectator.frameEnd < logEnd) {
+					spectator.frameEnd += SpectatorFormat.LENGTH_BYTES + logInt(spectator.frameEnd);
+				}
+				
+				if (written < length) {
+					spectator.writePending = true;
+					spectator.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+			}
+			
+			if ((spectator.key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+				spectator.key.interestOps(SelectionKey.OP_READ);
+			}
+		} catch (IOException e) {
+			close(spectator);
+		}
+	}
+	
+	private int logInt(long position)
+	{
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			value = (value << 8) | (log.get((int)((position + i) % logBytes)) & 0xFF);
+		}
+		return value;
+	}
+	
+	private void accept() throws IOException
+	{
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		
+		Spectator spectator = new Spectator();
+		spectator.channel = channel;
+		spectator.view = log.duplicate();
+		spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+		if (keyframeStart >= 0 && keyframeStart >= logEnd - logBytes) {
+			spectator.position = spectator.frameEnd = keyframeStart;
+		}
+		
+		spectators.add(spectator);
+		spectatorCount = spectators.size();
+	}
+	
+	private void discardInput(Spectator spectator)
+	{
+		// spectators have nothing to say, reading only detects disconnection
+		discarded.clear();
+		try {
+			if (spectator.channel.read(discarded) < 0) {
+				close(spectator);
+			}
+		} catch (IOException e) {
+			close(spectator);
+		}
+	}
+	
+	private void close(Spectator spectator)
+	{
+		spectator.key.cancel();
+		try {
+			spectator.channel.close();
+		} catch (IOException e) {
+			// already disconnected
+		}
+		
+		int index = spectators.indexOf(spectator);
+		if (index >= 0) {
+			spectators.set(index, spectators.get(spectators.size() - 1));
+			spectators.remove(spectators.size() - 1);
+		}
+		spectatorCount = spectators.size();
+	}
+}
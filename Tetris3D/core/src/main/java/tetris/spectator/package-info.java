@@ -0,0 +1,6 @@
+/**
+ * This package contains streaming of live games to spectators over TCP. Every tick is encoded once,
+ * as a keyframe with the whole state or as a delta of what changed, and the encoded frame is sent to
+ * all the connected spectators.
+ */
+package tetris.spectator;
@@ -0,0 +1,138 @@
+package tetris.training;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import tetris.GameLogic;
+import tetris.Input;
+import tetris.SeededRandom;
+
+/**
+ * Hands out training shards to simulation threads. Every thread writes its own shard, so that any
+ * number of them record games concurrently without sharing anything but the directory.
+ *
+ */
+public class TrainingExporter {
+	
+	// the random player presses a key on average once per that many ticks
+	private static final int kTicksPerInput = 8;
+	
+	private final Path directory;
+	private final String prefix;
+	private final int width;
+	private final int depth;
+	private final int height;
+	private final List<TrainingShard> shards = new ArrayList<TrainingShard>();
+	
+	/**
+	 * Records games of a random player into shards, one per thread
+	 * @param args Directory of shards, number of threads and number of games per thread
+	 * @throws Exception if shards can't be written
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Paths.get(args[0]);
+		int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		
+		Files.createDirectories(directory);
+		final TrainingExporter exporter = new TrainingExporter(directory, "games", GameLogic.WIDTH, GameLogic.DEPTH,
+				GameLogic.HEIGHT);
+		Thread[] threads = new Thread[threadCount];
+		long start = System.nanoTime();
+		for (int t = 0; t < threadCount; t++) {
+			final TrainingShard shard = exporter.newShard();
+			final long firstSeed = (long)t*games;
+			threads[t] = new Thread("Training " + t) {
+				@Override
+				public void run() {
+					playRandomGames(shard, firstSeed, games);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long records = exporter.close();
+		long nanos = System.nanoTime() - start;
+		System.out.printf("%d records in %.2f s, %.0f records/s%n", records, nanos/1e9, records*1e9/nanos);
+	}
+	
+	private static void playRandomGames(TrainingShard shard, long firstSeed, int games)
+	{
+		GameLogic game = new GameLogic();
+		game.setLockListener(shard);
+		SeededRandom random = new SeededRandom(firstSeed);
+		Input[] values = Input.values();
+		Input[] inputs = new Input[1];
+		
+		for (int i = 0; i < games; i++) {
+			game.newGame(firstSeed + i);
+			while (!game.isOver()) {
+				int count = 0;
+				if (random.nextInt(kTicksPerInput) == 0) {
+					inputs[count++] = values[random.nextInt(values.length)];
+				}
+				game.tickWithInputs(inputs, count);
+			}
+		}
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param directory Existing directory receiving shards
+	 * @param prefix Prefix of shards' names, they are numbered in order of creation
+	 * @param width Width of the wells of recorded games
+	 * @param depth Depth of the wells of recorded games
+	 * @param height Height of the wells of recorded games
+	 */
+	public TrainingExporter(Path directory, String prefix, int width, int depth, int height)
+	{
+		this.directory = directory;
+		this.prefix = prefix;
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+	}
+	
+	/**
+	 * Creates a new shard, to be used by a single thread at a time. May be called from any thread.
+	 * @return Shard, closed by close()
+	 * @throws IOException if shard can't be created
+	 */
+	public synchronized TrainingShard newShard() throws IOException
+	{
+		Path path = directory.resolve(String.format("%s-%04d.t3dt", prefix, shards.size()));
+		TrainingShard shard = new TrainingShard(path, width, depth, height);
+		shards.add(shard);
+		return shard;
+	}
+	
+	/**
+	 * Closes all the shards. Threads writing them must have finished.
+	 * @return Total number of records written
+	 * @throws IOException if closing any of the shards fails, the others are closed anyway
+	 */
+	public synchronized long close() throws IOException
+	{
+		long records = 0;
+		IOException failure = null;
+		for (TrainingShard shard : shards) {
+			records += shard.getRecordCount();
+			try {
+				shard.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		shards.clear();
+		if (failure != null) {
+			throw failure;
+		}
+		return records;
+	}
+}
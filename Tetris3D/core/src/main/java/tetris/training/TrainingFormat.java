@@ -0,0 +1,135 @@
+package tetris.training;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import tetris.BlockFactory;
+
+/**
+ * Constants and layout of training data shards.
+ * 
+ * A shard starts with a header of HEADER_BYTES: magic bytes "T3DT" (int), format version (int),
+ * width, depth and height of the well and words per level (shorts), record size (int), number
+ * of records (long) and BlockFactory.piecesFingerprint() (long), against which shape ids are read.
+ * It's followed by records of equal size, one per placed block:
+ * 
+ * seed (long), tick (long), number of block in game (int), points scored (int), shape (unsigned short),
+ * orientation, levels reduced and flags (bytes), x, y, z of the block (shorts), padding up to BOARD and the board
+ * before placement: height levels of words per level longs, bit y*width + x of a level set if the
+ * element is occupied.
+ * 
+ * All values are little endian and longs are aligned to 8 bytes, so that a shard can be mapped as
+ * an array of records as is.
+ *
+ */
+public final class TrainingFormat {
+	
+	public static final int MAGIC = 0x54334454; // "T3DT"
+	public static final int VERSION = 3;
+	public static final int HEADER_BYTES = 64;
+	
+	/**
+	 * Flag set in the record of block which didn't fit into the well and ended the game
+	 */
+	public static final int FLAG_GAME_OVER = 1;
+	
+	// offsets of header fields
+	static final int HEADER_VERSION = 4;
+	static final int HEADER_WIDTH = 8;
+	static final int HEADER_DEPTH = 10;
+	static final int HEADER_HEIGHT = 12;
+	static final int HEADER_WORDS = 14;
+	static final int HEADER_RECORD_BYTES = 16;
+	static final int HEADER_RECORD_COUNT = 24;
+	static final int HEADER_PIECES = 32;
+	
+	// offsets of record fields
+	public static final int SEED = 0;
+	public static final int TICK = 8;
+	public static final int BLOCK_NUMBER = 16;
+	public static final int POINTS = 20;
+	public static final int SHAPE = 24;
+	public static final int ORIENTATION = 26;
+	public static final int LEVELS = 27;
+	public static final int FLAGS = 28;
+	public static final int X = 30;
+	public static final int Y = 32;
+	public static final int Z = 34;
+	public static final int BOARD = 40;
+	
+	private TrainingFormat() {
+	}
+	
+	/**
+	 * Prints the header of every given shard
+	 * @param args Paths to shards
+	 * @throws IOException if a shard can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		long total = 0;
+		for (String arg : args) {
+			ByteBuffer header = readHeader(Paths.get(arg));
+			long count = header.getLong(HEADER_RECORD_COUNT);
+			System.out.println(arg + ": " + count + " records of " + header.getInt(HEADER_RECORD_BYTES) + " bytes, well "
+					+ header.getShort(HEADER_WIDTH) + "x" + header.getShort(HEADER_DEPTH) + "x" + header.getShort(HEADER_HEIGHT));
+			total += count;
+		}
+		System.out.println(total + " records");
+	}
+	
+	/**
+	 * Number of 64 bit words holding a level of given dimensions
+	 * @param width Well's width
+	 * @param depth Well's depth
+	 * @return words per level
+	 */
+	public static int wordsPerLevel(int width, int depth)
+	{
+		return (width*depth + 63) >>> 6;
+	}
+	
+	/**
+	 * Size of records for well of given dimensions
+	 * @param width Well's width
+	 * @param depth Well's depth
+	 * @param height Well's height
+	 * @return Number of bytes, a multiple of 8
+	 */
+	public static int recordBytes(int width, int depth, int height)
+	{
+		return BOARD + 8*height*wordsPerLevel(width, depth);
+	}
+	
+	/**
+	 * Reads and validates the header of a shard
+	 * @param path Path to shard
+	 * @return Little endian buffer of HEADER_BYTES
+	 * @throws IOException if file can't be read or isn't a shard
+	 */
+	public static ByteBuffer readHeader(Path path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IOException("Truncated header of " + path);
+				}
+			}
+			if (header.getInt(0) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+				throw new IOException("Not a training shard: " + path);
+			}
+			if (header.getLong(HEADER_PIECES) != BlockFactory.piecesFingerprint()) {
+				throw new IOException("Shard " + path + " was recorded with different pieces");
+			}
+			return header;
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package tetris.training;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tetris.Block;
+import tetris.BlockFactory;
+import tetris.Board;
+import tetris.GameLogic;
+import tetris.LockListener;
+
+/**
+ * A single file of training records, written by one thread at a time. Set as the lock listener of
+ * games, it writes a record (see TrainingFormat) for every placed block directly into a memory mapped
+ * window of the file, which is moved on when full. Writing doesn't allocate nor make system calls
+ * except when moving the window.
+ *
+ */
+public class TrainingShard implements LockListener {
+	
+	// windows are mapped this big, rounded down to whole records
+	private static final int kWindowBytes = 64 << 20;
+	
+	private final Path path;
+	private final FileChannel channel;
+	private final int width;
+	private final int depth;
+	private final int height;
+	private final int wordsPerLevel;
+	private final int recordBytes;
+	private final int windowRecords;
+	private final long[] levelWords;
+	
+	private MappedByteBuffer window;
+	private long windowStart; // index of the window's first record
+	private int windowCount; // records written to the window
+	private long recordCount;
+	private boolean pending; // a record was started by blockLocking()
+	
+	/**
+	 * Designated constructor, creates the file
+	 * @param path Path to created file, it's overwritten if it exists
+	 * @param width Width of the wells of recorded games
+	 * @param depth Depth of the wells of recorded games
+	 * @param height Height of the wells of recorded games
+	 * @throws IOException if file can't be created
+	 */
+	public TrainingShard(Path path, int width, int depth, int height) throws IOException
+	{
+		this.path = path;
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+		this.wordsPerLevel = TrainingFormat.wordsPerLevel(width, depth);
+		this.recordBytes = TrainingFormat.recordBytes(width, depth, height);
+		this.windowRecords = Math.max(1, kWindowBytes / recordBytes);
+		this.levelWords = new long[wordsPerLevel];
+		
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		writeHeader();
+		map(0);
+	}
+	
+	@Override
+	public void blockLocking(GameLogic game, Block block)
+	{
+		Board board = game.getBoard();
+		if (board.getWidth() != width || board.getDepth() != depth || board.getHeight() != height) {
+			throw new IllegalArgumentException("Shard " + path + " doesn't match the well of the game");
+		}
+		if (windowCount == windowRecords) {
+			try {
+				map(windowStart + windowCount);
+			} catch (IOException e) {
+				throw new IllegalStateException("Can't extend shard " + path, e);
+			}
+		}
+		
+		int record = windowCount*recordBytes;
+		window.putLong(record + TrainingFormat.SEED, game.getSeed());
+		window.putLong(record + TrainingFormat.TICK, game.getTickCount());
+		window.putInt(record + TrainingFormat.BLOCK_NUMBER, game.getBlockCount());
+		window.putShort(record + TrainingFormat.SHAPE, (short)block.getShape());
+		window.put(record + TrainingFormat.ORIENTATION, (byte)block.getOrientation());
+		window.putShort(record + TrainingFormat.X, (short)block.getX());
+		window.putShort(record + TrainingFormat.Y, (short)block.getY());
+		window.putShort(record + TrainingFormat.Z, (short)block.getZ());
+		
+		// the window of a fresh mapping is zeroed, only the occupied levels are written
+		int position = record + TrainingFormat.BOARD;
+		int topLevel = board.getTopLevel();
+		for (int k = 0; k < topLevel; k++) {
+			board.copyLevelBits(k, levelWords, 0);
+			for (int word = 0; word < wordsPerLevel; word++) {
+				window.putLong(position, levelWords[word]);
+				position += 8;
+			}
+		}
+		pending = true;
+	}
+	
+	@Override
+	public void blockLocked(GameLogic game, int reducedLevels, int points)
+	{
+		if (!pending) {
+			return; // listener was set while the block was locking
+		}
+		int record = windowCount*recordBytes;
+		window.putInt(record + TrainingFormat.POINTS, points);
+		window.put(record + TrainingFormat.LEVELS, (byte)reducedLevels);
+		window.put(record + TrainingFormat.FLAGS, (byte)(game.isOver() ? TrainingFormat.FLAG_GAME_OVER : 0));
+		
+		pending = false;
+		windowCount++;
+		recordCount++;
+	}
+	
+	/**
+	 * Writes the final record count and cuts the file after the last record
+	 * @throws IOException if writing fails
+	 */
+	public void close() throws IOException
+	{
+		window.force();
+		window = null;
+		writeHeader();
+		channel.truncate(TrainingFormat.HEADER_BYTES + recordCount*recordBytes);
+		channel.close();
+	}
+	
+	/**
+	 * Number of records written so far
+	 * @return record count
+	 */
+	public long getRecordCount()
+	{
+		return recordCount;
+	}
+	
+	/**
+	 * Path of the shard
+	 * @return path
+	 */
+	public Path getPath()
+	{
+		return path;
+	}
+	
+	private void map(long firstRecord) throws IOException
+	{
+		if (window != null) {
+			window.force();
+			writeHeader(); // readers of an unfinished shard see the records of completed windows
+		}
+		window = channel.map(FileChannel.MapMode.READ_WRITE, TrainingFormat.HEADER_BYTES + firstRecord*recordBytes,
+				(long)windowRecords*recordBytes);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = firstRecord;
+		windowCount = 0;
+	}
+	
+	private void writeHeader() throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(TrainingFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, TrainingFormat.MAGIC);
+		header.putInt(TrainingFormat.HEADER_VERSION, TrainingFormat.VERSION);
+		header.putShort(TrainingFormat.HEADER_WIDTH, (short)width);
+		header.putShort(TrainingFormat.HEADER_DEPTH, (short)depth);
+		header.putShort(TrainingFormat.HEADER_HEIGHT, (short)height);
+		header.putShort(TrainingFormat.HEADER_WORDS, (short)wordsPerLevel);
+		header.putInt(TrainingFormat.HEADER_RECORD_BYTES, recordBytes);
+		header.putLong(TrainingFormat.HEADER_RECORD_COUNT, recordCount);
+		header.putLong(TrainingFormat.HEADER_PIECES, BlockFactory.piecesFingerprint());
+		
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += channel.write(header, position);
+		}
+	}
+}
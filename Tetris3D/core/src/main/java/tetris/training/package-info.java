@@ -0,0 +1,5 @@
+/**
+ * This package contains export of training data for bots: one fixed width record per placed block,
+ * written to memory mapped files which loaders can map without parsing.
+ */
+package tetris.training;
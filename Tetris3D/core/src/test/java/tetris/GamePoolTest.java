@@ -0,0 +1,61 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Creates games on random seeds, ticks them with random inputs both in a GamePool and in GameLogic
+ * and compares their states after every tick.
+ *
+ */
+class GamePoolTest {
+	
+	private static final int kVerifiedGames = 2000;
+	private static final int kVerifiedTallGames = 200; // games in a tall well last many more ticks
+	private static final int kMaxInputsPerTick = 3;
+	private static final Input[] INPUTS = Input.values();
+	
+	@Test
+	void defaultWellMatchesGameLogic() {
+		verify(GameLogic.WIDTH, GameLogic.DEPTH, GameLogic.HEIGHT, kVerifiedGames, 1);
+	}
+	
+	@Test
+	void fullLevelsMatchGameLogic() {
+		// 32 cells per level, the whole occupancy int is used
+		verify(4, 8, 20, kVerifiedTallGames, 2);
+	}
+	
+	private static void verify(int width, int depth, int height, int games, long randomSeed) {
+		Random random = new Random(randomSeed);
+		GamePool pool = new GamePool(games, width, depth, height);
+		GameLogic logic = new GameLogic(width, depth, height);
+		Input[] inputs = new Input[kMaxInputsPerTick];
+		
+		for (int game = 0; game < games; game++) {
+			long seed = random.nextLong();
+			logic.newGame(seed);
+			pool.newGame(game, seed);
+			
+			while (!logic.isOver()) {
+				int count = random.nextInt(8) == 0 ? random.nextInt(inputs.length + 1) : 0;
+				for (int i = 0; i < count; i++) {
+					inputs[i] = INPUTS[random.nextInt(INPUTS.length)];
+					if (inputs[i] == Input.Drop && random.nextInt(4) != 0) {
+						inputs[i] = Input.None; // games with frequent drops are too short
+					}
+				}
+				logic.tickWithInputs(inputs, count);
+				pool.tick(game, inputs, count);
+				
+				String difference = pool.compare(game, logic);
+				if (difference != null) {
+					fail("Game " + game + " (seed " + seed + ") differs at tick " + logic.getTickCount() + ": " + difference);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.lwjgl.input.Keyboard;
+import org.lwjgl.input.Mouse;
+import org.lwjgl.opengl.Display;
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.OpenGL.Camera;
+import tetris.OpenGL.GLRenderer;
+import tetris.OpenGL.Renderer;
+import tetris.OpenGL.WellScene;
+import tetris.metrics.FrameProfiler;
+import tetris.metrics.GameStats;
+import tetris.metrics.LatencyTracer;
+import tetris.replay.ReplayRecorder;
+import tetris.spectator.SpectatorEncoder;
+import tetris.spectator.SpectatorFormat;
+import tetris.spectator.SpectatorServer;
+
+/**
+ * This class is responsible for running game loop, passing user input to the Simulation and drawing
+ * its snapshots. Provides a clean separation between business and presentation layer.
+ *
+ */
+public class Engine {
+	
+	public static void main(String[] args) {
+		Engine engine = new Engine();
+		engine.startGame();
+	}
+
+	private final int kWidth = 1024;
+	private final int kHeight = 768;	
+	// Frame rate limit, 0 leaves the pacing to vsync. Game speed doesn't depend on it.
+	private final int kMaxFramesPerSecond = 0;
+	private final String kLatencyFileName = "latency.txt";
+	private final String kTimingFileName = "timing.log";
+	private final long kTimingLogIntervalMillis = 10000;
+	private final String kLeaderboardFileName = "leaderboard.txt";
+	private final String kLegacyHighScoreFileName = "highscore.txt";
+	private final int kLeaderboardSize = 10;
+	private final String kReplayDirectory = "replays";
+	// Spectators are served on loopback when the port is given with -Dtetris.spectatorPort=...
+	private final String kSpectatorPortProperty = "tetris.spectatorPort";
+	// Well dimensions can be overridden with -Dtetris.width=..., -Dtetris.depth=... and -Dtetris.height=...
+	private final String kWidthProperty = "tetris.width";
+	private final String kDepthProperty = "tetris.depth";
+	private final String kHeightProperty = "tetris.height";
+	// Camera distance per unit of the well's largest dimension
+	private final float kCameraDistanceScale = 1.2f;
+	
+	// Colors multiplying the whole scene in different game states
+	private final float[] kPlayingTint = {1.0f, 1.0f, 1.0f};
+	private final float[] kPausedTint = {0.35f, 0.35f, 0.35f};
+	private final float[] kGameOverTint = {0.8f, 0.25f, 0.25f};
+	private final float[] kHighScoreTint = {1.0f, 0.85f, 0.3f};
+	
+	private Renderer renderer;
+	private Camera camera;
+	private Simulation simulation;
+	private ReplayRecorder replayRecorder;
+	private SpectatorServer spectatorServer;
+	private GameSnapshot snapshot;
+	private float alpha;
+	
+	private LatencyTracer latencyTracer = new LatencyTracer();
+	private FrameProfiler profiler = new FrameProfiler();
+	private GameStats stats = new GameStats();
+	private long tracedInputTime;
+	
+	private LeaderboardStore leaderboard;
+	private String playerName = System.getProperty("user.name", "Player");
+	private int highScore;
+	
+	private WellScene scene;
+	
+	// Values currently shown in the window title, it is only rebuilt when they change
+	private int titleScore = -1;
+	private int titleHighScore = -1;
+	private GameState titleState = null;
+	
+	private GameState state = GameState.Playing;
+	private boolean isNewHighScore;
+	
+	/**
+	 * Starts game
+	 */
+	public void startGame()
+	{
+		leaderboard = new LeaderboardStore(kLeaderboardFileName, kLeaderboardSize);
+		leaderboard.importLegacyHighScore(kLegacyHighScoreFileName, playerName);
+		highScore = leaderboard.getHighScore();
+		
+		renderer = new GLRenderer();
+		int width = Integer.getInteger(kWidthProperty, GameLogic.WIDTH);
+		int depth = Integer.getInteger(kDepthProperty, GameLogic.DEPTH);
+		int height = Integer.getInteger(kHeightProperty, GameLogic.HEIGHT);
+		GameLogic logic = new GameLogic(width, depth, height);
+		replayRecorder = new ReplayRecorder(new File(kReplayDirectory), logic, ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL);
+		logic.setListener(replayRecorder);
+		logic.newGame();
+		simulation = new Simulation(logic);
+		setupSpectators(logic);
+		
+		Vector3f lookPoint = new Vector3f(width/2.0f, depth/2.0f, height/2.0f);
+		float distance = kCameraDistanceScale*Math.max(height, Math.max(width, depth));
+		camera = new Camera((float)kWidth/(float)kHeight, lookPoint, distance);
+		
+		renderer.setup(kWidth,kHeight);
+		scene = new WellScene(width, depth, height);
+		
+		simulation.setProfiler(profiler);
+		simulation.setStats(stats);
+		stats.register();
+		simulation.start();
+		profiler.startLogging(kTimingFileName, kTimingLogIntervalMillis);
+
+		while (!Display.isCloseRequested()) {
+			
+			long frameStart = System.nanoTime();
+			stats.frameStarted();
+
+			processKeyboardInput();
+			processMouseInput();
+			long phaseStart = profiler.record(FrameProfiler.Phase.Input, frameStart);
+			
+			// must be checked before taking the snapshot, see Simulation.isNewGameRequested()
+			boolean restarting = simulation.isNewGameRequested();
+			snapshot = simulation.getSnapshots().acquire();
+			alpha = Math.min(1.0f, (float)(System.nanoTime() - snapshot.getNanoTime()) / Simulation.NANOS_PER_TICK);
+			
+			updateState(snapshot, restarting);
+			
+			renderer.startRenderingWithCamera(camera);
+			renderer.setTint(tintForState());
+			
+			int elements = scene.render(renderer, snapshot, alpha);
+			
+			renderer.endRendering();
+			
+			int score = snapshot.getScore();
+			long inputTime = snapshot.getInputTime();
+			long inputApplyTime = snapshot.getInputApplyTime();
+			updateTitle(score);
+			simulation.getSnapshots().release(snapshot);
+			phaseStart = profiler.record(FrameProfiler.Phase.Render, phaseStart);
+
+			// waiting for the frame rate limit, if any, is counted as part of Display.update
+			if (kMaxFramesPerSecond > 0) {
+				Display.sync(kMaxFramesPerSecond);
+			}
+			// Let the CPU synchronize with the GPU if GPU is tagging behind
+			Display.update();
+			profiler.record(FrameProfiler.Phase.Update, phaseStart);
+			profiler.record(FrameProfiler.Phase.Frame, frameStart);
+			stats.frameCompleted(elements);
+			
+			if (inputTime != tracedInputTime) {
+				// first frame showing the result of this input was just submitted
+				latencyTracer.record(inputTime, inputApplyTime, System.nanoTime());
+				tracedInputTime = inputTime;
+			}
+		}
+		
+		simulation.stop();
+		if (spectatorServer != null) {
+			spectatorServer.stop();
+		}
+		replayRecorder.close();
+		profiler.stopLogging();
+		stats.unregister();
+		leaderboard.close();
+		latencyTracer.dump(kLatencyFileName);
+		renderer.tearDown();
+	}
+	
+	private void setupSpectators(GameLogic logic) {
+		String port = System.getProperty(kSpectatorPortProperty);
+		if (port == null) {
+			return;
+		}
+		
+		try {
+			spectatorServer = new SpectatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port)),
+					SpectatorFormat.maxFrameSize(logic.getBoard().getWidth(), logic.getBoard().getDepth(),
+							logic.getBoard().getHeight()));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		SpectatorEncoder encoder = new SpectatorEncoder(spectatorServer, SpectatorEncoder.DEFAULT_KEYFRAME_INTERVAL);
+		logic.setBoardListener(encoder);
+		simulation.setSpectators(encoder);
+		spectatorServer.start();
+	}
+	
+	private void updateState(GameSnapshot snapshot, boolean restarting) {
+		if (state == GameState.Playing && snapshot.isOver() && !restarting) {
+			state = GameState.GameOver;
+			
+			// leaderboard is written to disk in the background
+			isNewHighScore = snapshot.getScore() > highScore;
+			leaderboard.submit(new LeaderboardEntry(playerName, snapshot.getScore(), snapshot.getLevels(),
+					System.currentTimeMillis()));
+			highScore = Math.max(highScore, snapshot.getScore());
+		}
+	}
+	
+	private void changeState(GameState newState) {
+		switch (newState) {
+		case Playing:
+			if (state == GameState.GameOver) {
+				simulation.requestNewGame();
+			}
+			simulation.setPaused(false);
+			break;
+		case Paused:
+			simulation.setPaused(true);
+			break;
+		default:
+			break;
+		}
+		
+		state = newState;
+	}
+	
+	private float[] tintForState() {
+		switch (state) {
+		case Paused:
+			return kPausedTint;
+		case GameOver:
+			return isNewHighScore ? kHighScoreTint : kGameOverTint;
+		default:
+			return kPlayingTint;
+		}
+	}
+	
+	private void updateTitle(int score) {
+		if (score == titleScore && highScore == titleHighScore && state == titleState) {
+			return;
+		}
+		titleScore = score;
+		titleHighScore = highScore;
+		titleState = state;
+		
+		String title = "Your score: " + titleScore + " -- High score: " +  titleHighScore;
+		switch (state) {
+		case Paused:
+			title += " -- Paused, press P to resume";
+			break;
+		case GameOver:
+			title += (isNewHighScore ? " -- New highscore!" : " -- Game Over.") + " Press ENTER to play again";
+			break;
+		default:
+			break;
+		}
+		Display.setTitle(title);
+	}
+
+	private void processMouseInput() {
+
+		if (Mouse.isButtonDown(0)) {
+		
+			final float scale = 0.01f;
+			
+			int dx = Mouse.getDX();
+			int dy = Mouse.getDY();
+			
+			camera.setYaw(camera.getYaw() + dx*scale);
+			camera.setPitch(camera.getPitch() - dy*scale);
+		}
+
+		final float wheelScale = 120.0f;
+		camera.setDistance(camera.getDistance() + Mouse.getDWheel()/wheelScale);
+
+	}
+
+	private void processKeyboardInput() {
+
+		while(Keyboard.next()) {
+			if (Keyboard.getEventKey() == Keyboard.KEY_F12 && Keyboard.getEventKeyState()) {
+				latencyTracer.dumpLater(kLatencyFileName);
+				continue;
+			}
+			if (Keyboard.getEventKey() == Keyboard.KEY_F11 && Keyboard.getEventKeyState()) {
+				profiler.writeReportLater();
+				continue;
+			}
+			if (processStateKey(Keyboard.getEventKey(), Keyboard.getEventKeyState())) {
+				continue;
+			}
+			if (state != GameState.Playing) {
+				continue;
+			}
+			
+			Input input = inputForKey(Keyboard.getEventKey());
+			if (input == Input.None) continue;
+			
+			simulation.postInput(input, Keyboard.getEventKeyState(), System.nanoTime());
+		}
+	}
+	
+	private boolean processStateKey(int key, boolean pressed) {
+		
+		switch (state) {
+		case Playing:
+			if (key == Keyboard.KEY_P || key == Keyboard.KEY_ESCAPE) {
+				if (pressed) changeState(GameState.Paused);
+				return true;
+			}
+			return false;
+		case Paused:
+			if (key == Keyboard.KEY_P || key == Keyboard.KEY_ESCAPE) {
+				if (pressed) changeState(GameState.Playing);
+				return true;
+			}
+			return false;
+		case GameOver:
+			if (key == Keyboard.KEY_RETURN) {
+				if (pressed) changeState(GameState.Playing);
+				return true;
+			}
+			return false;
+		default:
+			return false;
+		}
+	}
+	
+	private Input inputForKey(int key) {
+		
+		switch (key) {
+		// Move
+		case Keyboard.KEY_UP:
+			return Input.MoveUp;
+		case Keyboard.KEY_DOWN:
+			return Input.MoveDown;
+		case Keyboard.KEY_LEFT:
+			return Input.MoveLeft;
+		case Keyboard.KEY_RIGHT:
+			return Input.MoveRight;
+		case Keyboard.KEY_A:
+			return Input.RotateX;
+		case Keyboard.KEY_S:
+			return Input.RotateY;
+		case Keyboard.KEY_D:
+			return Input.RotateZ;
+		case Keyboard.KEY_SPACE:
+			return Input.Drop;
+		default:
+			return Input.None;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.OpenGL.Camera;
+import tetris.OpenGL.SoftwareRenderer;
+import tetris.OpenGL.WellScene;
+import tetris.replay.ReplayPlayer;
+
+/**
+ * Renders frames of a recorded game to PNG files without a GPU or a display, e.g. for thumbnails
+ * and videos of games played on servers. Needs neither LWJGL's native libraries nor a GPU.
+ *
+ */
+public class FrameExporter {
+	
+	// Camera distance per unit of the well's largest dimension, as in Engine
+	private static final float kCameraDistanceScale = 1.2f;
+	private static final float[] kTint = {1.0f, 1.0f, 1.0f};
+	
+	/**
+	 * Renders a replay
+	 * @param args Path to replay file, output directory, optionally the number of ticks between frames
+	 * (default 1), frame width and height (default 320x240) and number of rendering threads (all
+	 * processors by default). With a directory "-" frames are rendered but not written, to measure
+	 * rendering speed.
+	 * @throws IOException if replay can't be read or frame can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		ReplayPlayer player = ReplayPlayer.open(Paths.get(args[0]));
+		File directory = args[1].equals("-") ? null : new File(args[1]);
+		int ticksPerFrame = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int width = args.length > 3 ? Integer.parseInt(args[3]) : 320;
+		int height = args.length > 4 ? Integer.parseInt(args[4]) : 240;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create " + directory);
+		}
+		
+		SoftwareRenderer renderer = new SoftwareRenderer(threads);
+		renderer.setup(width, height);
+		FrameExporter exporter = new FrameExporter(renderer, player.playTo(0));
+		
+		long renderNanos = 0;
+		int frames = 0;
+		long tick = 0;
+		while (true) {
+			GameLogic logic = player.playTo(tick);
+			if (logic.getTickCount() < tick && frames > 0) {
+				break; // end of replay
+			}
+			
+			long start = System.nanoTime();
+			exporter.render(logic);
+			renderNanos += System.nanoTime() - start;
+			
+			if (directory != null) {
+				renderer.writePng(new File(directory, String.format("frame%06d.png", frames)));
+			}
+			frames++;
+			if (logic.isOver()) {
+				break;
+			}
+			tick += ticksPerFrame;
+		}
+		renderer.tearDown();
+		
+		System.out.printf("%d frames of %dx%d, rendered at %.0f frames/s on %d threads%n", frames, width, height,
+				frames*1e9/renderNanos, threads);
+	}
+	
+	private final SoftwareRenderer renderer;
+	private final Camera camera;
+	private final WellScene scene;
+	private final SnapshotExchange snapshots;
+	
+	/**
+	 * Designated constructor
+	 * @param renderer Renderer which was set up with the size of frames
+	 * @param logic Game whose well is rendered
+	 */
+	public FrameExporter(SoftwareRenderer renderer, GameLogic logic)
+	{
+		Board board = logic.getBoard();
+		int width = board.getWidth();
+		int depth = board.getDepth();
+		int height = board.getHeight();
+		
+		this.renderer = renderer;
+		this.scene = new WellScene(width, depth, height);
+		this.snapshots = new SnapshotExchange(width, depth, height, 1);
+		
+		Vector3f lookPoint = new Vector3f(width/2.0f, depth/2.0f, height/2.0f);
+		float distance = kCameraDistanceScale*Math.max(height, Math.max(width, depth));
+		camera = new Camera((float)renderer.getWidth()/(float)renderer.getHeight(), lookPoint, distance);
+	}
+	
+	/**
+	 * Renders current state of a game into renderer's framebuffer
+	 * @param logic Rendered game
+	 */
+	public void render(GameLogic logic)
+	{
+		snapshots.publish(logic, false);
+		GameSnapshot snapshot = snapshots.acquire();
+		
+		renderer.startRenderingWithCamera(camera);
+		renderer.setTint(kTint);
+		scene.render(renderer, snapshot, 0.0f);
+		renderer.endRendering();
+		
+		snapshots.release(snapshot);
+	}
+	
+	/**
+	 * Camera used to render frames, it can be moved between them
+	 * @return camera
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+}
@@ -14,27 +14,45 @@ public class Camera {
 	private float pitch;
 
 	private float distance;
+	private float maxDistance;
 	
-	private Matrix4f viewProjectionMatrix;
+	private Matrix4f viewProjectionMatrix = new Matrix4f();
 	private Matrix4f projectionMatrix = null;
-	private Matrix4f viewMatrix = null;
+	private Matrix4f viewMatrix = new Matrix4f();
+	
+	// Rotation axes and a scratch translation, so that moving the camera does not allocate
+	private static final Vector3f X_AXIS = new Vector3f(1, 0, 0);
+	private static final Vector3f Y_AXIS = new Vector3f(0, 1, 0);
+	private Vector3f distanceVector = new Vector3f();
 	
 	/**
-	 * Designated constructor.
+	 * Creates camera at the default distance
 	 * @param aspectRatio - camera's aspect ratio
 	 * @param focusPoint - the point at which camera looks
 	 */
 	public Camera(float aspectRatio, Vector3f focusPoint)
+	{
+		this(aspectRatio, focusPoint, 12.0f);
+	}
+	
+	/**
+	 * Designated constructor.
+	 * @param aspectRatio - camera's aspect ratio
+	 * @param focusPoint - the point at which camera looks
+	 * @param distance - initial distance from focus point, the camera can zoom out to 5/3 of it
+	 */
+	public Camera(float aspectRatio, Vector3f focusPoint, float distance)
 	{
 		this.focusPoint = new Vector3f(-focusPoint.x + 0.5f, -focusPoint.z + 0.5f, +focusPoint.y - 0.5f);
 		this.pitch = (float)(Math.PI/2.3);
-		this.distance = 12.0f;
+		this.distance = distance;
+		this.maxDistance = distance*5.0f/3.0f;
 		
 		projectionMatrix = new Matrix4f();
 
 		float fieldOfView = 60f;
 		float near_plane = 0.1f;
-		float far_plane = 100f;
+		float far_plane = Math.max(100f, 5*maxDistance);
 		
 		float y_scale = this.coTangent(this.degreesToRadians(fieldOfView / 2f));
 		float x_scale = y_scale / aspectRatio;
@@ -51,16 +69,16 @@ public class Camera {
 	
 	private void recalculateMatrices()
 	{
-		viewMatrix = new Matrix4f();
+		viewMatrix.setIdentity();
+		distanceVector.set(0, 0, -distance);
 	
 		// surprisingly reverse order ?
-		Matrix4f.translate(new Vector3f(0, 0, -distance), viewMatrix, viewMatrix); // final distance transform
-		Matrix4f.rotate(pitch, new Vector3f(1, 0, 0), viewMatrix, viewMatrix);
-		Matrix4f.rotate(yaw, new Vector3f(0, 1, 0), viewMatrix, viewMatrix);
+		Matrix4f.translate(distanceVector, viewMatrix, viewMatrix); // final distance transform
+		Matrix4f.rotate(pitch, X_AXIS, viewMatrix, viewMatrix);
+		Matrix4f.rotate(yaw, Y_AXIS, viewMatrix, viewMatrix);
 		Matrix4f.translate(focusPoint, viewMatrix, viewMatrix); // look at point offset
-		Matrix4f.rotate((float)(-Math.PI/2.0), new Vector3f(1, 0, 0), viewMatrix, viewMatrix); // OpenGL coords to my coords
+		Matrix4f.rotate((float)(-Math.PI/2.0), X_AXIS, viewMatrix, viewMatrix); // OpenGL coords to my coords
 
-		viewProjectionMatrix = new Matrix4f();
 		Matrix4f.mul(projectionMatrix, viewMatrix, viewProjectionMatrix);
 	}
 	
@@ -142,7 +160,7 @@ public class Camera {
 	 * @param distance new distance angle
 	 */
 	public void setDistance(float distance) {
-		distance = (float) Math.min(Math.max(0, distance), 20.0);
+		distance = Math.min(Math.max(0, distance), maxDistance);
 		this.distance = distance;
 		
 		recalculateMatrices();
@@ -27,7 +27,7 @@ import org.lwjgl.util.vector.Vector3f;
  * Game's OpenGL renderer
  *
  */
-public class GLRenderer {
+public class GLRenderer implements Renderer {
 
 	// Quad variables
 	private int quadVAO = 0;
@@ -61,11 +61,27 @@ public class GLRenderer {
 
 	private FloatBuffer matrix44Buffer = null;
 	
+	// Precomputed rotations of the six cube walls, see setupMatrices()
+	private Matrix4f[] wallMatrices = null;
+	// Element colors indexed by Color ordinal, see setupColors()
+	private float[][] colorTable = null;
+	
+	// Scratch objects reused every frame, so that rendering does not allocate
+	private Matrix4f modelMatrix = new Matrix4f();
+	private Vector3f lineBase = new Vector3f(0, 1, 0);
+	private Vector3f lineDir = new Vector3f();
+	private Vector3f lineAxis = new Vector3f();
+	private Vector3f lineScale = new Vector3f();
+	
+	// Color multiplying everything rendered, see setTint()
+	private float[] tint = {1.0f, 1.0f, 1.0f};
+	
 	/**
 	 * Performs initial setup of OpenGL renderer
 	 * @param width Width of created frame buffer
 	 * @param height Height of created frame buffer
 	 */
+	@Override
 	public void setup(int width, int height)
 	{
 		this.setupOpenGL(width, height);
@@ -73,11 +89,13 @@ public class GLRenderer {
 		this.setupQuad();
 		this.setupShaders();
 		this.setupMatrices();
+		this.setupColors();
 	}
 	
 	/**
 	 * Performs the tear down of renderer, removing all OpenGL dependencies
 	 */
+	@Override
 	public void tearDown()
 	{
 		this.destroyOpenGL();
@@ -87,6 +105,7 @@ public class GLRenderer {
 	 * Setups OpenGL to begin rendering current frame
 	 * @param camera Camera used to render current frame
 	 */
+	@Override
 	public void startRenderingWithCamera(Camera camera)
 	{
 		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
@@ -107,9 +126,21 @@ public class GLRenderer {
 		GL20.glUniformMatrix4(viewMatrixLocation, false, matrix44Buffer);
 	}
 	
+	/**
+	 * Sets a color multiplying all elements and lines rendered afterwards, e.g. to dim
+	 * the scene when the game is paused
+	 * @param tint Red, green and blue multipliers, the array is not copied
+	 */
+	@Override
+	public void setTint(float[] tint)
+	{
+		this.tint = tint;
+	}
+	
 	/**
 	 * Cleans OpenGL's state at the end of rendering frame
 	 */
+	@Override
 	public void endRendering()
 	{
 		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
@@ -128,15 +159,29 @@ public class GLRenderer {
 	 * @param offset Position of block in world space coordinates
 	 * @param color Color of rendered block
 	 */
+	@Override
 	public void renderElementAtOffsetWithColor(Vector3f offset, Color color)
+	{
+		renderElementAtOffsetWithColor(offset.x, offset.y, offset.z, color);
+	}
+	
+	/**
+	 * Renders a single block element, doesn't require the caller to allocate an offset vector
+	 * @param x "Width" coordinate of element in world space
+	 * @param y "Depth" coordinate of element in world space
+	 * @param z "Height" coordinate of element in world space
+	 * @param color Color of rendered block
+	 */
+	@Override
+	public void renderElementAtOffsetWithColor(float x, float y, float z, Color color)
 	{		
 		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, quadIndicesVBO);
 		// global VP matrix for this rendering phase
 		
-		Vector3f colorVec = vectorForColor(color);
-		GL20.glUniform4f(colorVectorLocation, colorVec.x, colorVec.y, colorVec.z, 1.0f);
+		float[] colorVec = colorTable[color.ordinal()];
+		GL20.glUniform4f(colorVectorLocation, colorVec[0]*tint[0], colorVec[1]*tint[1], colorVec[2]*tint[2], 1.0f);
 		GL20.glUniform1f(lightFactorLocation, 0.7f);
-		renderWallsAtOffset(offset);
+		renderWallsAtOffset(x, y, z);
 	}
 	
 	/**
@@ -145,24 +190,23 @@ public class GLRenderer {
 	 * @param to End point of line in world space coordinates
 	 * @param alpha Alpha channel value for line
 	 */
+	@Override
 	public void renderLineWithAlpha(Vector3f from, Vector3f to, float alpha)
 	{
 		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, bbIndicesVBO);
-		GL20.glUniform4f(colorVectorLocation, 1.0f, 1.0f, 1.0f, alpha);
+		GL20.glUniform4f(colorVectorLocation, tint[0], tint[1], tint[2], alpha);
 		GL20.glUniform1f(lightFactorLocation, 0.0f);
 
 		GL11.glDepthMask(false);
 		GL11.glEnable(GL11.GL_BLEND);
 		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
 		
-		Vector3f base = new Vector3f(0,1,0);
-		
-		Vector3f dir = new Vector3f();
+		Vector3f dir = lineDir;
 		Vector3f.sub(to, from, dir);
 		
-		float angle = Vector3f.angle(dir, base);
-		Vector3f axis = new Vector3f();
-		Vector3f.cross(dir, base, axis);
+		float angle = Vector3f.angle(dir, lineBase);
+		Vector3f axis = lineAxis;
+		Vector3f.cross(dir, lineBase, axis);
 		
 		float length = axis.length();
 		if (length != 0.0)
@@ -170,11 +214,12 @@ public class GLRenderer {
 			axis.scale(1.0f/length);
 		}
 		float scale = dir.length(); 
+		lineScale.set(scale, scale, scale);
 		
-		Matrix4f modelMatrix = new Matrix4f();
+		modelMatrix.setIdentity();
 		Matrix4f.translate(from, modelMatrix, modelMatrix);
 		Matrix4f.rotate(-angle, axis, modelMatrix, modelMatrix);
-		Matrix4f.scale(new Vector3f(scale, scale, scale), modelMatrix, modelMatrix);		
+		Matrix4f.scale(lineScale, modelMatrix, modelMatrix);		
 
 		modelMatrix.store(matrix44Buffer);
 		matrix44Buffer.flip();
@@ -184,6 +229,39 @@ public class GLRenderer {
 	
 	private void setupMatrices() {
 		matrix44Buffer = BufferUtils.createFloatBuffer(16);
+		
+		Vector3f[] rotVectors = {
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 0, 1),
+				new Vector3f(0, 0, 1),
+		};
+		
+		float[] angles = {
+			0.0f,
+			(float) (Math.PI/2.0),
+			(float) (Math.PI),
+			(float) (Math.PI*3.0/2.0),
+			(float) (Math.PI/2.0),
+			(float) (-Math.PI/2.0),
+		};
+		
+		wallMatrices = new Matrix4f[rotVectors.length];
+		for (int i = 0; i < wallMatrices.length; i++) {
+			wallMatrices[i] = new Matrix4f();
+			Matrix4f.rotate(angles[i], rotVectors[i], wallMatrices[i], wallMatrices[i]);
+		}
+	}
+	
+	private void setupColors() {
+		Color[] colors = Color.values();
+		colorTable = new float[colors.length][];
+		
+		for (int i = 0; i < colors.length; i++) {
+			colorTable[i] = vectorForColor(colors[i]);
+		}
 	}
 
 
@@ -310,32 +388,15 @@ public class GLRenderer {
 	
 	
 	
-	private void renderWallsAtOffset(Vector3f offset)
+	private void renderWallsAtOffset(float x, float y, float z)
 	{
-		Vector3f[] rotVectors = {
-				new Vector3f(0, 1, 0),
-				new Vector3f(0, 1, 0),
-				new Vector3f(0, 1, 0),
-				new Vector3f(0, 1, 0),
-				new Vector3f(0, 0, 1),
-				new Vector3f(0, 0, 1),
-		};
-		
-		float[] angles = {
-			0.0f,
-			(float) (Math.PI/2.0),
-			(float) (Math.PI),
-			(float) (Math.PI*3.0/2.0),
-			(float) (Math.PI/2.0),
-			(float) (-Math.PI/2.0),
-		};
-
-		for (int i = 0; i < 6; i++) {
-			
-			Matrix4f modelMatrix = new Matrix4f();
-			Matrix4f.translate(offset, modelMatrix, modelMatrix);
-			Matrix4f.rotate(angles[i], rotVectors[i], modelMatrix, modelMatrix);
+		for (int i = 0; i < wallMatrices.length; i++) {
 			
+			// translation * rotation, the translation only touches the last column
+			Matrix4f.load(wallMatrices[i], modelMatrix);
+			modelMatrix.m30 = x;
+			modelMatrix.m31 = y;
+			modelMatrix.m32 = z;
 			
 			modelMatrix.store(matrix44Buffer);
 			matrix44Buffer.flip();
@@ -344,20 +405,25 @@ public class GLRenderer {
 		}	
 	}
 	
-	private Vector3f vectorForColor(Color color)
+	/**
+	 * Color of elements, shared with other renderers
+	 * @param color Element's color
+	 * @return Red, green and blue components
+	 */
+	static float[] vectorForColor(Color color)
 	{
 		switch (color) {
 		case Red:
-			return new Vector3f(188.0f/255.0f, 45.0f/255.0f, 30.0f/255.0f);
+			return new float[] {188.0f/255.0f, 45.0f/255.0f, 30.0f/255.0f};
 		case Green:
-			return new Vector3f(106.0f/255.0f, 176.0f/255.0f, 47.0f/255.0f);
+			return new float[] {106.0f/255.0f, 176.0f/255.0f, 47.0f/255.0f};
 		case Blue:
-			return new Vector3f(55.0f/255.0f, 162.0f/255.0f, 181.0f/255.0f);
+			return new float[] {55.0f/255.0f, 162.0f/255.0f, 181.0f/255.0f};
 		case Yellow:
-			return new Vector3f(233.0f/255.0f, 208.0f/255.0f, 2.0f/255.0f);
+			return new float[] {233.0f/255.0f, 208.0f/255.0f, 2.0f/255.0f};
 		}
 		
-		return new Vector3f(0.0f, 0.0f, 0.0f);
+		return new float[] {0.0f, 0.0f, 0.0f};
 	}
 	
 	private void destroyOpenGL() {	
@@ -0,0 +1,67 @@
+package tetris.OpenGL;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.Color;
+
+/**
+ * Operations of the game's renderers: a frame is started with a camera, elements and lines are
+ * rendered into it and the frame is ended.
+ *
+ */
+public interface Renderer {
+	
+	/**
+	 * Performs initial setup of renderer
+	 * @param width Width of rendered frames
+	 * @param height Height of rendered frames
+	 */
+	void setup(int width, int height);
+	
+	/**
+	 * Releases everything the renderer holds
+	 */
+	void tearDown();
+	
+	/**
+	 * Begins rendering a frame
+	 * @param camera Camera used to render the frame
+	 */
+	void startRenderingWithCamera(Camera camera);
+	
+	/**
+	 * Sets a color multiplying all elements and lines rendered afterwards, e.g. to dim
+	 * the scene when the game is paused
+	 * @param tint Red, green and blue multipliers, the array is not copied
+	 */
+	void setTint(float[] tint);
+	
+	/**
+	 * Finishes rendering the frame
+	 */
+	void endRendering();
+	
+	/**
+	 * Renders a single block element
+	 * @param offset Position of block in world space coordinates
+	 * @param color Color of rendered block
+	 */
+	void renderElementAtOffsetWithColor(Vector3f offset, Color color);
+	
+	/**
+	 * Renders a single block element, doesn't require the caller to allocate an offset vector
+	 * @param x "Width" coordinate of element in world space
+	 * @param y "Depth" coordinate of element in world space
+	 * @param z "Height" coordinate of element in world space
+	 * @param color Color of rendered block
+	 */
+	void renderElementAtOffsetWithColor(float x, float y, float z, Color color);
+	
+	/**
+	 * Renders a single white line with a given alpha value
+	 * @param from Start point of line in world space coordinates
+	 * @param to End point of line in world space coordinates
+	 * @param alpha Alpha channel value for line
+	 */
+	void renderLineWithAlpha(Vector3f from, Vector3f to, float alpha);
+}
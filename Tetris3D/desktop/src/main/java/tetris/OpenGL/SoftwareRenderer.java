@@ -0,0 +1,661 @@
+package tetris.OpenGL;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.Color;
+
+/**
+ * Renderer drawing on the CPU into an int[] framebuffer, for machines without a GPU (thumbnails and
+ * videos of games rendered on servers). It produces the same picture as GLRenderer: CubeMesh walls
+ * transformed by the camera's view projection matrix, shaded per vertex like the vertex shader does,
+ * back faces culled and lines blended over the depth tested scene.
+ *
+ * Rendering calls only record elements and lines, the frame is drawn by endRendering() in two
+ * parallel phases. In the first one every thread transforms its share of elements and sorts the
+ * triangles into bins of screen tiles, in the second one threads take whole tiles and rasterize all
+ * the triangles binned to them, followed by the lines. A tile is only ever touched by one thread, so
+ * the threads don't synchronize except between the phases. Triangles with a vertex behind the near
+ * plane are dropped instead of clipped, which doesn't happen with the game's cameras.
+ *
+ */
+public class SoftwareRenderer implements Renderer {
+	
+	private static final int kTileSize = 64;
+	// GLRenderer's clear color, 0.1 of white
+	private static final int kBackground = 0x1A1A1A;
+	private static final float kLightFactor = 0.7f;
+	private static final float kNearW = 0.1f;
+	// CubeMesh ends with two vertices of lines, which aren't part of the walls
+	private static final int kWallVertices = CubeMesh.VERTICES.length - 2;
+	private static final int kWallCount = 6;
+	
+	// screen triangle: x, y, depth, intensity of three vertices and red, green, blue of element
+	private static final int kTriangleFloats = 15;
+	private static final int kElementFloats = 6;
+	private static final int kLineFloats = 10;
+	
+	private final int threadCount;
+	private int width;
+	private int height;
+	private int tilesX;
+	private int tileCount;
+	private int[] framebuffer;
+	private float[] depthBuffer;
+	
+	// walls of a cube at the origin, rotated as GLRenderer's wall matrices do it
+	private float[] meshPositions;
+	private float[] meshNormals;
+	private int[] meshTriangles;
+	private int meshVertexCount;
+	
+	// per frame: view projection matrix, clip coordinates and shading of the cube's vertices
+	private final float[] viewProjection = new float[16];
+	private float[] clipBase;
+	private float[] intensities;
+	private float[][] colorTable;
+	private float[] tint = {1.0f, 1.0f, 1.0f};
+	
+	// recorded elements (x, y, z, red, green, blue) and lines (from, to, red, green, blue, alpha)
+	private float[] elements = new float[kElementFloats*256];
+	private int elementCount;
+	private float[] lines = new float[kLineFloats*128];
+	private float[] screenLines = new float[6*128];
+	private int lineCount;
+	
+	private Worker[] workers;
+	private Thread[] threads;
+	private CyclicBarrier barrier;
+	private final AtomicInteger nextTile = new AtomicInteger();
+	private volatile boolean running;
+	
+	/**
+	 * Per thread state, transformed vertices and triangles binned to tiles
+	 */
+	private final class Worker implements Runnable {
+		final int index;
+		final float[] screen = new float[4*kWallCount*kWallVertices];
+		float[] triangles = new float[kTriangleFloats*1024];
+		int triangleCount;
+		int[][] bins;
+		int[] binCounts;
+		
+		Worker(int index)
+		{
+			this.index = index;
+		}
+		
+		@Override
+		public void run()
+		{
+			while (true) {
+				await();
+				if (!running) {
+					return;
+				}
+				renderFrame(this);
+			}
+		}
+	}
+	
+	/**
+	 * Creates renderer using all the processors
+	 */
+	public SoftwareRenderer()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Designated constructor
+	 * @param threadCount Number of threads drawing a frame, including the one calling endRendering()
+	 */
+	public SoftwareRenderer(int threadCount)
+	{
+		this.threadCount = threadCount;
+	}
+	
+	@Override
+	public void setup(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		tilesX = (width + kTileSize - 1)/kTileSize;
+		tileCount = tilesX*((height + kTileSize - 1)/kTileSize);
+		framebuffer = new int[width*height];
+		depthBuffer = new float[width*height];
+		
+		setupMesh();
+		setupColors();
+		
+		workers = new Worker[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			workers[i] = new Worker(i);
+			workers[i].bins = new int[tileCount][16];
+			workers[i].binCounts = new int[tileCount];
+		}
+		
+		// the thread calling endRendering() works as the first worker
+		running = true;
+		barrier = new CyclicBarrier(threadCount);
+		threads = new Thread[threadCount];
+		for (int i = 1; i < threadCount; i++) {
+			threads[i] = new Thread(workers[i], "Software renderer " + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+	
+	@Override
+	public void tearDown()
+	{
+		running = false;
+		await(); // releases the workers, which see that they should stop
+		for (int i = 1; i < threadCount; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	@Override
+	public void startRenderingWithCamera(Camera camera)
+	{
+		elementCount = 0;
+		lineCount = 0;
+		
+		Matrix4f m = camera.getViewProjectionMatrix();
+		viewProjection[0] = m.m00; viewProjection[1] = m.m01; viewProjection[2] = m.m02; viewProjection[3] = m.m03;
+		viewProjection[4] = m.m10; viewProjection[5] = m.m11; viewProjection[6] = m.m12; viewProjection[7] = m.m13;
+		viewProjection[8] = m.m20; viewProjection[9] = m.m21; viewProjection[10] = m.m22; viewProjection[11] = m.m23;
+		viewProjection[12] = m.m30; viewProjection[13] = m.m31; viewProjection[14] = m.m32; viewProjection[15] = m.m33;
+		
+		// walls of every element are the same cube translated, only the translation is added per element
+		Matrix4f view = camera.getViewMatrix();
+		for (int v = 0; v < meshVertexCount; v++) {
+			float x = meshPositions[3*v];
+			float y = meshPositions[3*v + 1];
+			float z = meshPositions[3*v + 2];
+			for (int row = 0; row < 4; row++) {
+				clipBase[4*v + row] = viewProjection[row]*x + viewProjection[4 + row]*y + viewProjection[8 + row]*z
+						+ viewProjection[12 + row];
+			}
+			
+			// as in the vertex shader: fake ambient by taking only a part of diffuse light
+			float normalZ = view.m02*meshNormals[3*v] + view.m12*meshNormals[3*v + 1] + view.m22*meshNormals[3*v + 2];
+			intensities[v] = 1.0f + (normalZ - 1.0f)*kLightFactor;
+		}
+	}
+	
+	@Override
+	public void setTint(float[] tint)
+	{
+		this.tint = tint;
+	}
+	
+	@Override
+	public void endRendering()
+	{
+		nextTile.set(0);
+		await(); // starts the workers
+		renderFrame(workers[0]);
+	}
+	
+	@Override
+	public void renderElementAtOffsetWithColor(Vector3f offset, Color color)
+	{
+		renderElementAtOffsetWithColor(offset.x, offset.y, offset.z, color);
+	}
+	
+	@Override
+	public void renderElementAtOffsetWithColor(float x, float y, float z, Color color)
+	{
+		if (kElementFloats*(elementCount + 1) > elements.length) {
+			float[] grown = new float[elements.length*2];
+			System.arraycopy(elements, 0, grown, 0, elements.length);
+			elements = grown;
+		}
+		
+		float[] colorVec = colorTable[color.ordinal()];
+		int offset = kElementFloats*elementCount++;
+		elements[offset] = x;
+		elements[offset + 1] = y;
+		elements[offset + 2] = z;
+		elements[offset + 3] = colorVec[0]*tint[0];
+		elements[offset + 4] = colorVec[1]*tint[1];
+		elements[offset + 5] = colorVec[2]*tint[2];
+	}
+	
+	@Override
+	public void renderLineWithAlpha(Vector3f from, Vector3f to, float alpha)
+	{
+		if (kLineFloats*(lineCount + 1) > lines.length) {
+			float[] grown = new float[lines.length*2];
+			System.arraycopy(lines, 0, grown, 0, lines.length);
+			lines = grown;
+			screenLines = new float[screenLines.length*2];
+		}
+		
+		int offset = kLineFloats*lineCount++;
+		lines[offset] = from.x;
+		lines[offset + 1] = from.y;
+		lines[offset + 2] = from.z;
+		lines[offset + 3] = to.x;
+		lines[offset + 4] = to.y;
+		lines[offset + 5] = to.z;
+		lines[offset + 6] = tint[0];
+		lines[offset + 7] = tint[1];
+		lines[offset + 8] = tint[2];
+		lines[offset + 9] = alpha;
+	}
+	
+	/**
+	 * Pixels of the last frame, valid until the next one is started
+	 * @return Row after row from the top, 0xRRGGBB
+	 */
+	public int[] getFramebuffer() {
+		return framebuffer;
+	}
+	
+	/**
+	 * Getter for frame's width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Getter for frame's height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Writes the last frame as PNG image
+	 * @param file Written file
+	 * @throws IOException if writing fails
+	 */
+	public void writePng(File file) throws IOException
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, width, height, framebuffer, 0, width);
+		if (!ImageIO.write(image, "png", file)) {
+			throw new IOException("No PNG writer available");
+		}
+	}
+	
+	private void await()
+	{
+		try {
+			barrier.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while rendering", e);
+		} catch (BrokenBarrierException e) {
+			throw new IllegalStateException("Rendering thread failed", e);
+		}
+	}
+	
+	private void renderFrame(Worker worker)
+	{
+		transformElements(worker, elementCount*worker.index/threadCount, elementCount*(worker.index + 1)/threadCount);
+		if (worker.index == 0) {
+			transformLines();
+		}
+		await(); // all the triangles are binned
+		
+		int tile;
+		while ((tile = nextTile.getAndIncrement()) < tileCount) {
+			rasterizeTile(tile);
+		}
+		await(); // the frame is complete
+	}
+	
+	private void transformElements(Worker worker, int from, int to)
+	{
+		float[] screen = worker.screen;
+		worker.triangleCount = 0;
+		for (int tile = 0; tile < tileCount; tile++) {
+			worker.binCounts[tile] = 0;
+		}
+		
+		for (int e = from; e < to; e++) {
+			int offset = kElementFloats*e;
+			float x = elements[offset];
+			float y = elements[offset + 1];
+			float z = elements[offset + 2];
+			float dx = viewProjection[0]*x + viewProjection[4]*y + viewProjection[8]*z;
+			float dy = viewProjection[1]*x + viewProjection[5]*y + viewProjection[9]*z;
+			float dz = viewProjection[2]*x + viewProjection[6]*y + viewProjection[10]*z;
+			float dw = viewProjection[3]*x + viewProjection[7]*y + viewProjection[11]*z;
+			
+			for (int v = 0; v < meshVertexCount; v++) {
+				float w = clipBase[4*v + 3] + dw;
+				if (w < kNearW) {
+					screen[4*v + 3] = 0; // behind the near plane
+					continue;
+				}
+				float invW = 1.0f/w;
+				screen[4*v] = (0.5f + 0.5f*(clipBase[4*v] + dx)*invW)*width;
+				screen[4*v + 1] = (0.5f - 0.5f*(clipBase[4*v + 1] + dy)*invW)*height;
+				screen[4*v + 2] = (clipBase[4*v + 2] + dz)*invW;
+				screen[4*v + 3] = 1;
+			}
+			
+			for (int t = 0; t < meshTriangles.length; t += 3) {
+				int a = 4*meshTriangles[t];
+				int b = 4*meshTriangles[t + 1];
+				int c = 4*meshTriangles[t + 2];
+				if (screen[a + 3] == 0 || screen[b + 3] == 0 || screen[c + 3] == 0) {
+					continue;
+				}
+				
+				// counter-clockwise with y up is front facing, rows go down so its area is negative
+				float area = (screen[b] - screen[a])*(screen[c + 1] - screen[a + 1])
+						- (screen[c] - screen[a])*(screen[b + 1] - screen[a + 1]);
+				if (area >= 0) {
+					continue;
+				}
+				binTriangle(worker, screen, a, b, c, offset);
+			}
+		}
+	}
+	
+	private void binTriangle(Worker worker, float[] screen, int a, int b, int c, int element)
+	{
+		float minX = Math.min(screen[a], Math.min(screen[b], screen[c]));
+		float maxX = Math.max(screen[a], Math.max(screen[b], screen[c]));
+		float minY = Math.min(screen[a + 1], Math.min(screen[b + 1], screen[c + 1]));
+		float maxY = Math.max(screen[a + 1], Math.max(screen[b + 1], screen[c + 1]));
+		if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) {
+			return;
+		}
+		
+		if (kTriangleFloats*(worker.triangleCount + 1) > worker.triangles.length) {
+			float[] grown = new float[worker.triangles.length*2];
+			System.arraycopy(worker.triangles, 0, grown, 0, worker.triangles.length);
+			worker.triangles = grown;
+		}
+		int triangle = worker.triangleCount++;
+		float[] triangles = worker.triangles;
+		int offset = kTriangleFloats*triangle;
+		putVertex(triangles, offset, screen, a);
+		putVertex(triangles, offset + 4, screen, b);
+		putVertex(triangles, offset + 8, screen, c);
+		triangles[offset + 12] = elements[element + 3];
+		triangles[offset + 13] = elements[element + 4];
+		triangles[offset + 14] = elements[element + 5];
+		
+		int firstColumn = Math.max(0, (int)minX/kTileSize);
+		int lastColumn = Math.min(tilesX - 1, (int)maxX/kTileSize);
+		int firstRow = Math.max(0, (int)minY/kTileSize);
+		int lastRow = Math.min(tileCount/tilesX - 1, (int)maxY/kTileSize);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int tile = row*tilesX + column;
+				int count = worker.binCounts[tile];
+				if (count == worker.bins[tile].length) {
+					int[] grown = new int[count*2];
+					System.arraycopy(worker.bins[tile], 0, grown, 0, count);
+					worker.bins[tile] = grown;
+				}
+				worker.bins[tile][count] = triangle;
+				worker.binCounts[tile] = count + 1;
+			}
+		}
+	}
+	
+	private void putVertex(float[] triangles, int offset, float[] screen, int vertex)
+	{
+		triangles[offset] = screen[vertex];
+		triangles[offset + 1] = screen[vertex + 1];
+		triangles[offset + 2] = screen[vertex + 2];
+		triangles[offset + 3] = intensities[vertex >> 2];
+	}
+	
+	private void transformLines()
+	{
+		for (int l = 0; l < lineCount; l++) {
+			for (int end = 0; end < 2; end++) {
+				int offset = kLineFloats*l + 3*end;
+				float x = lines[offset];
+				float y = lines[offset + 1];
+				float z = lines[offset + 2];
+				float w = viewProjection[3]*x + viewProjection[7]*y + viewProjection[11]*z + viewProjection[15];
+				int screenOffset = 6*l + 3*end;
+				if (w < kNearW) {
+					screenLines[screenOffset + 2] = Float.NaN; // dropped, as triangles behind the near plane
+					continue;
+				}
+				float invW = 1.0f/w;
+				screenLines[screenOffset] = (0.5f + 0.5f*(viewProjection[0]*x + viewProjection[4]*y + viewProjection[8]*z
+						+ viewProjection[12])*invW)*width;
+				screenLines[screenOffset + 1] = (0.5f - 0.5f*(viewProjection[1]*x + viewProjection[5]*y + viewProjection[9]*z
+						+ viewProjection[13])*invW)*height;
+				screenLines[screenOffset + 2] = (viewProjection[2]*x + viewProjection[6]*y + viewProjection[10]*z
+						+ viewProjection[14])*invW;
+			}
+		}
+	}
+	
+	private void rasterizeTile(int tile)
+	{
+		int left = (tile % tilesX)*kTileSize;
+		int top = (tile / tilesX)*kTileSize;
+		int right = Math.min(left + kTileSize, width);
+		int bottom = Math.min(top + kTileSize, height);
+		
+		for (int y = top; y < bottom; y++) {
+			int row = y*width;
+			for (int x = left; x < right; x++) {
+				framebuffer[row + x] = kBackground;
+				depthBuffer[row + x] = Float.POSITIVE_INFINITY;
+			}
+		}
+		
+		// workers in order, so that the result doesn't depend on scheduling
+		for (Worker worker : workers) {
+			int[] bin = worker.bins[tile];
+			int count = worker.binCounts[tile];
+			for (int i = 0; i < count; i++) {
+				rasterizeTriangle(worker.triangles, kTriangleFloats*bin[i], left, top, right, bottom);
+			}
+		}
+		
+		for (int l = 0; l < lineCount; l++) {
+			rasterizeLine(l, left, top, right, bottom);
+		}
+	}
+	
+	private void rasterizeTriangle(float[] triangles, int offset, int left, int top, int right, int bottom)
+	{
+		float x0 = triangles[offset], y0 = triangles[offset + 1], z0 = triangles[offset + 2], i0 = triangles[offset + 3];
+		float x1 = triangles[offset + 4], y1 = triangles[offset + 5], z1 = triangles[offset + 6], i1 = triangles[offset + 7];
+		float x2 = triangles[offset + 8], y2 = triangles[offset + 9], z2 = triangles[offset + 10], i2 = triangles[offset + 11];
+		float red = triangles[offset + 12], green = triangles[offset + 13], blue = triangles[offset + 14];
+		
+		// pixels whose centers are inside the triangle
+		int minX = Math.max(left, (int)Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+		int maxX = Math.min(right - 1, (int)Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+		int minY = Math.max(top, (int)Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+		int maxY = Math.min(bottom - 1, (int)Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+		if (minX > maxX || minY > maxY) {
+			return;
+		}
+		
+		// barycentric coordinates from edge functions, stepped along rows and columns
+		float invArea = 1.0f/((x1 - x0)*(y2 - y0) - (x2 - x0)*(y1 - y0));
+		float stepX0 = (y1 - y2)*invArea, stepY0 = (x2 - x1)*invArea;
+		float stepX1 = (y2 - y0)*invArea, stepY1 = (x0 - x2)*invArea;
+		float stepX2 = (y0 - y1)*invArea, stepY2 = (x1 - x0)*invArea;
+		float px = minX + 0.5f;
+		float py = minY + 0.5f;
+		float row0 = ((x2 - x1)*(py - y1) - (y2 - y1)*(px - x1))*invArea;
+		float row1 = ((x0 - x2)*(py - y2) - (y0 - y2)*(px - x2))*invArea;
+		float row2 = ((x1 - x0)*(py - y0) - (y1 - y0)*(px - x0))*invArea;
+		
+		for (int y = minY; y <= maxY; y++) {
+			float b0 = row0, b1 = row1, b2 = row2;
+			int index = y*width + minX;
+			for (int x = minX; x <= maxX; x++, index++) {
+				if (b0 >= 0 && b1 >= 0 && b2 >= 0) {
+					float depth = b0*z0 + b1*z1 + b2*z2;
+					if (depth < depthBuffer[index]) {
+						depthBuffer[index] = depth;
+						float intensity = b0*i0 + b1*i1 + b2*i2;
+						framebuffer[index] = (channel(red*intensity) << 16) | (channel(green*intensity) << 8)
+								| channel(blue*intensity);
+					}
+				}
+				b0 += stepX0;
+				b1 += stepX1;
+				b2 += stepX2;
+			}
+			row0 += stepY0;
+			row1 += stepY1;
+			row2 += stepY2;
+		}
+	}
+	
+	private void rasterizeLine(int line, int left, int top, int right, int bottom)
+	{
+		int offset = 6*line;
+		float x0 = screenLines[offset], y0 = screenLines[offset + 1], z0 = screenLines[offset + 2];
+		float x1 = screenLines[offset + 3], y1 = screenLines[offset + 4], z1 = screenLines[offset + 5];
+		if (Float.isNaN(z0) || Float.isNaN(z1)) {
+			return;
+		}
+		
+		// clip the segment to the tile (Liang-Barsky), so that every tile walks only its part of it
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		float[] range = {0.0f, 1.0f};
+		if (!clip(-dx, x0 - left, range) || !clip(dx, right - x0, range) || !clip(-dy, y0 - top, range)
+				|| !clip(dy, bottom - y0, range)) {
+			return;
+		}
+		
+		int lineOffset = kLineFloats*line;
+		float alpha = lines[lineOffset + 9];
+		float red = lines[lineOffset + 6]*alpha;
+		float green = lines[lineOffset + 7]*alpha;
+		float blue = lines[lineOffset + 8]*alpha;
+		
+		int steps = (int)Math.ceil(Math.max(Math.abs(dx), Math.abs(dy))*(range[1] - range[0])) + 1;
+		int previous = -1;
+		for (int s = 0; s <= steps; s++) {
+			float t = range[0] + (range[1] - range[0])*s/steps;
+			int x = (int)(x0 + dx*t);
+			int y = (int)(y0 + dy*t);
+			if (x < left || x >= right || y < top || y >= bottom) {
+				continue;
+			}
+			int index = y*width + x;
+			if (index == previous) {
+				continue;
+			}
+			previous = index;
+			
+			// depth tested, but not written, like GLRenderer's lines
+			if (z0 + (z1 - z0)*t >= depthBuffer[index]) {
+				continue;
+			}
+			int pixel = framebuffer[index];
+			float keep = 1.0f - alpha;
+			framebuffer[index] = (channel(red + keep*((pixel >> 16) & 0xFF)/255.0f) << 16)
+					| (channel(green + keep*((pixel >> 8) & 0xFF)/255.0f) << 8)
+					| channel(blue + keep*(pixel & 0xFF)/255.0f);
+		}
+	}
+	
+	private static boolean clip(float p, float q, float[] range)
+	{
+		if (p == 0) {
+			return q > 0;
+		}
+		float t = q/p;
+		if (p < 0) {
+			range[0] = Math.max(range[0], t);
+		} else {
+			range[1] = Math.min(range[1], t);
+		}
+		return range[0] <= range[1];
+	}
+	
+	private static int channel(float value)
+	{
+		return value <= 0 ? 0 : value >= 1 ? 255 : (int)(value*255.0f + 0.5f);
+	}
+	
+	private void setupMesh()
+	{
+		Vector3f[] rotVectors = {
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 1, 0),
+				new Vector3f(0, 0, 1),
+				new Vector3f(0, 0, 1),
+		};
+		float[] angles = {
+			0.0f,
+			(float) (Math.PI/2.0),
+			(float) (Math.PI),
+			(float) (Math.PI*3.0/2.0),
+			(float) (Math.PI/2.0),
+			(float) (-Math.PI/2.0),
+		};
+		
+		meshVertexCount = kWallCount*kWallVertices;
+		meshPositions = new float[3*meshVertexCount];
+		meshNormals = new float[3*meshVertexCount];
+		meshTriangles = new int[kWallCount*CubeMesh.FACES.length];
+		clipBase = new float[4*meshVertexCount];
+		intensities = new float[meshVertexCount];
+		
+		Matrix4f wall = new Matrix4f();
+		for (int w = 0; w < kWallCount; w++) {
+			wall.setIdentity();
+			Matrix4f.rotate(angles[w], rotVectors[w], wall, wall);
+			for (int v = 0; v < kWallVertices; v++) {
+				float[] vertex = CubeMesh.VERTICES[v].getElements();
+				int offset = 3*(w*kWallVertices + v);
+				rotate(wall, vertex[0], vertex[1], vertex[2], meshPositions, offset);
+				rotate(wall, vertex[3], vertex[4], vertex[5], meshNormals, offset);
+			}
+			for (int i = 0; i < CubeMesh.FACES.length; i++) {
+				meshTriangles[w*CubeMesh.FACES.length + i] = w*kWallVertices + CubeMesh.FACES[i];
+			}
+		}
+	}
+	
+	private static void rotate(Matrix4f m, float x, float y, float z, float[] destination, int offset)
+	{
+		destination[offset] = m.m00*x + m.m10*y + m.m20*z;
+		destination[offset + 1] = m.m01*x + m.m11*y + m.m21*z;
+		destination[offset + 2] = m.m02*x + m.m12*y + m.m22*z;
+	}
+	
+	private void setupColors()
+	{
+		Color[] colors = Color.values();
+		colorTable = new float[colors.length][];
+		for (int i = 0; i < colors.length; i++) {
+			colorTable[i] = GLRenderer.vectorForColor(colors[i]);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package tetris.OpenGL;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.Block;
+import tetris.Color;
+import tetris.Element;
+import tetris.GameSnapshot;
+
+/**
+ * The scene of a game: the falling block, visible elements of the board and the lines of the well's
+ * bounding box, drawn from a GameSnapshot with any Renderer.
+ *
+ */
+public class WellScene {
+	
+	private static final float kLineAlpha = 0.1f;
+	
+	// Bounding box line endpoints, pairs of (from, to) computed once
+	private final Vector3f[] boundingBoxLines;
+	private final float[] boundingBoxAlphas;
+	
+	/**
+	 * Designated constructor
+	 * @param width Width of the well
+	 * @param depth Depth of the well
+	 * @param height Height of the well
+	 */
+	public WellScene(int width, int depth, int height)
+	{
+		int lineCount = 3*(width + 1) + 3*(depth + 1) + 4*(height + 1) + 2;
+		boundingBoxLines = new Vector3f[2*lineCount];
+		boundingBoxAlphas = new float[lineCount];
+		int line = 0;
+		
+		for (int i = 0; i <= width; i++) {
+			Vector3f a = new Vector3f(-0.5f + i, -0.5f, -0.5f);
+			Vector3f b = new Vector3f(-0.5f + i, -0.5f, height -0.5f);
+			
+			Vector3f c = new Vector3f(-0.5f + i, depth -0.5f, -0.5f);
+			Vector3f d = new Vector3f(-0.5f + i, depth -0.5f, height -0.5f);
+			
+			line = addBoundingBoxLine(line, a, b, kLineAlpha);
+			line = addBoundingBoxLine(line, c, d, kLineAlpha);
+			line = addBoundingBoxLine(line, a, c, kLineAlpha);
+		}
+		
+		for (int i = 0; i <= depth; i++) {
+			Vector3f a = new Vector3f(-0.5f, -0.5f + i, -0.5f);
+			Vector3f b = new Vector3f(-0.5f, -0.5f + i, height -0.5f);
+			
+			Vector3f c = new Vector3f(width -0.5f, -0.5f + i, -0.5f);
+			Vector3f d = new Vector3f(width -0.5f, -0.5f + i, height -0.5f);
+			
+			line = addBoundingBoxLine(line, a, b, kLineAlpha);
+			line = addBoundingBoxLine(line, c, d, kLineAlpha);
+			line = addBoundingBoxLine(line, a, c, kLineAlpha);
+		}
+		
+		for (int i = 0; i <= height; i++) {
+			Vector3f a = new Vector3f(-0.5f, -0.5f, -0.5f + i);
+			Vector3f b = new Vector3f(width -0.5f, -0.5f, -0.5f + i);
+			Vector3f c = new Vector3f(width -0.5f, depth -0.5f, -0.5f + i);
+			Vector3f d = new Vector3f(-0.5f,depth -0.5f, -0.5f + i);
+			
+			line = addBoundingBoxLine(line, a, b, kLineAlpha);
+			line = addBoundingBoxLine(line, b, c, kLineAlpha);
+			line = addBoundingBoxLine(line, c, d, kLineAlpha);
+			line = addBoundingBoxLine(line, d, a, kLineAlpha);
+		}
+		
+		Vector3f a = new Vector3f(-0.6f, -0.6f, -0.5f);
+		Vector3f b = new Vector3f( 0.0f, -0.6f, -0.5f);
+		Vector3f c = new Vector3f(-0.6f,  0.0f, -0.5f);
+		
+		line = addBoundingBoxLine(line, a, b, 1.0f);
+		line = addBoundingBoxLine(line, a, c, 1.0f);
+	}
+	
+	/**
+	 * Renders the scene into a started frame
+	 * @param renderer Renderer whose frame was started
+	 * @param snapshot State of the game
+	 * @param alpha Fraction of tick that passed since snapshot was taken, used to interpolate falling block
+	 * @return Number of rendered elements
+	 */
+	public int render(Renderer renderer, GameSnapshot snapshot, float alpha)
+	{
+		int elements = renderBlock(renderer, snapshot, alpha) + renderBoard(renderer, snapshot);
+		renderBB(renderer);
+		return elements;
+	}
+	
+	private int renderBlock(Renderer renderer, GameSnapshot snapshot, float alpha)
+	{
+		int count = 0;
+		Block block = snapshot.getBlock();
+		float x = snapshot.interpolatedX(alpha);
+		float y = snapshot.interpolatedY(alpha);
+		float z = snapshot.interpolatedZ(alpha);
+		
+		for (int i = 0; i < block.getSize(); i++) {
+			for (int j = 0; j < block.getSize(); j++) {
+				for (int k = 0; k < block.getSize(); k++) {
+					Element element;
+					if ((element = block.elementAtLocation(i, j, k)) != null) {
+					
+						renderer.renderElementAtOffsetWithColor(x + i, y + j, z + k, element.getColor());
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	private int renderBoard(Renderer renderer, GameSnapshot snapshot)
+	{
+		int count = 0;
+		for (int i = 0; i < snapshot.getWidth(); i++) {
+			for (int j = 0; j < snapshot.getDepth(); j++) {
+				for (int k = 0; k < snapshot.getTopLevel(); k++) {
+					Color color;
+					if ((color = snapshot.colorAtLocation(i, j, k)) != null && snapshot.isVisible(i, j, k)) {
+						renderer.renderElementAtOffsetWithColor(i, j, k, color);
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	private void renderBB(Renderer renderer)
+	{
+		for (int i = 0; i < boundingBoxAlphas.length; i++) {
+			renderer.renderLineWithAlpha(boundingBoxLines[2*i], boundingBoxLines[2*i + 1], boundingBoxAlphas[i]);
+		}
+	}
+	
+	private int addBoundingBoxLine(int line, Vector3f from, Vector3f to, float alpha)
+	{
+		boundingBoxLines[2*line] = from;
+		boundingBoxLines[2*line + 1] = to;
+		boundingBoxAlphas[line] = alpha;
+		return line + 1;
+	}
+}
@@ -0,0 +1,82 @@
+package tetris.OpenGL;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import tetris.Color;
+
+/**
+ * Renderer standing in for GLRenderer in tests, it records what a frame consists of into
+ * pre-allocated counters instead of drawing it.
+ *
+ */
+class RecordingRenderer implements Renderer {
+	
+	int frames;
+	int elements;
+	int lines;
+	// sum of everything rendered in the current frame, so that the calls can't be optimized away
+	double checksum;
+	
+	private boolean isRendering;
+	
+	@Override
+	public void setup(int width, int height) {
+	}
+	
+	@Override
+	public void tearDown() {
+	}
+	
+	@Override
+	public void startRenderingWithCamera(Camera camera) {
+		if (isRendering) {
+			throw new IllegalStateException("Frame started twice");
+		}
+		isRendering = true;
+		elements = 0;
+		lines = 0;
+		
+		// GLRenderer uploads both matrices every frame
+		Matrix4f viewProjection = camera.getViewProjectionMatrix();
+		Matrix4f view = camera.getViewMatrix();
+		checksum = viewProjection.m00 + view.m00;
+	}
+	
+	@Override
+	public void setTint(float[] tint) {
+		checksum += tint[0] + tint[1] + tint[2];
+	}
+	
+	@Override
+	public void endRendering() {
+		if (!isRendering) {
+			throw new IllegalStateException("Frame ended without being started");
+		}
+		isRendering = false;
+		frames++;
+	}
+	
+	@Override
+	public void renderElementAtOffsetWithColor(Vector3f offset, Color color) {
+		renderElementAtOffsetWithColor(offset.x, offset.y, offset.z, color);
+	}
+	
+	@Override
+	public void renderElementAtOffsetWithColor(float x, float y, float z, Color color) {
+		if (!isRendering) {
+			throw new IllegalStateException("Element rendered outside of frame");
+		}
+		elements++;
+		checksum += x + y + z + color.ordinal();
+	}
+	
+	@Override
+	public void renderLineWithAlpha(Vector3f from, Vector3f to, float alpha) {
+		if (!isRendering) {
+			throw new IllegalStateException("Line rendered outside of frame");
+		}
+		lines++;
+		checksum += from.x + to.z + alpha;
+	}
+}
@@ -0,0 +1,107 @@
+package tetris.OpenGL;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.util.vector.Vector3f;
+
+import com.sun.management.ThreadMXBean;
+
+import tetris.GameLogic;
+import tetris.GameSnapshot;
+import tetris.Input;
+import tetris.SnapshotExchange;
+import tetris.metrics.FrameProfiler;
+import tetris.metrics.GameStats;
+
+/**
+ * Renders many frames of a running game the way Engine does, against a recording renderer, and
+ * checks that the render thread doesn't allocate anything once warmed up.
+ *
+ */
+class WellSceneAllocationTest {
+	
+	private static final int kWarmupFrames = 2000;
+	private static final int kMeasuredFrames = 5000;
+	private static final float[] kTint = {1.0f, 1.0f, 1.0f};
+	
+	private final Input[] inputs = {Input.MoveLeft, Input.Drop};
+	
+	@Test
+	void framesDoNotAllocate() {
+		ThreadMXBean threads = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		
+		GameLogic logic = new GameLogic();
+		logic.newGame(1);
+		int width = logic.getBoard().getWidth();
+		int depth = logic.getBoard().getDepth();
+		int height = logic.getBoard().getHeight();
+		
+		SnapshotExchange snapshots = new SnapshotExchange(width, depth, height, 1);
+		WellScene scene = new WellScene(width, depth, height);
+		Camera camera = new Camera(4.0f/3.0f, new Vector3f(width/2.0f, depth/2.0f, height/2.0f), 12.0f);
+		RecordingRenderer renderer = new RecordingRenderer();
+		GameStats stats = new GameStats();
+		FrameProfiler profiler = new FrameProfiler();
+		
+		for (int frame = 0; frame < kWarmupFrames; frame++) {
+			advance(logic, snapshots, frame);
+			renderFrame(snapshots, scene, camera, renderer, stats, profiler);
+		}
+		
+		long allocated = 0;
+		int maxElements = 0;
+		for (int frame = 0; frame < kMeasuredFrames; frame++) {
+			advance(logic, snapshots, frame);
+			
+			long before = threads.getCurrentThreadAllocatedBytes();
+			int elements = renderFrame(snapshots, scene, camera, renderer, stats, profiler);
+			allocated += threads.getCurrentThreadAllocatedBytes() - before;
+			
+			assertEquals(renderer.elements, elements);
+			maxElements = Math.max(maxElements, elements);
+		}
+		
+		assertEquals(kWarmupFrames + kMeasuredFrames, renderer.frames);
+		assertTrue(maxElements > 4, "board was never filled");
+		assertTrue(renderer.lines > 0, "bounding box wasn't rendered");
+		assertEquals(0, allocated, "bytes allocated by " + kMeasuredFrames + " frames");
+	}
+	
+	/**
+	 * Simulation's part of a frame: drops a block every few frames and publishes a snapshot
+	 */
+	private void advance(GameLogic logic, SnapshotExchange snapshots, int frame) {
+		if (logic.isOver()) {
+			logic.newGame(frame);
+		}
+		logic.tickWithInputs(inputs, frame % 8 == 0 ? inputs.length : 0);
+		snapshots.publish(logic, true);
+	}
+	
+	/**
+	 * Rendering thread's part of a frame, as in Engine.startGame()
+	 */
+	private int renderFrame(SnapshotExchange snapshots, WellScene scene, Camera camera,
+			RecordingRenderer renderer, GameStats stats, FrameProfiler profiler) {
+		long frameStart = System.nanoTime();
+		stats.frameStarted();
+		
+		GameSnapshot snapshot = snapshots.acquire();
+		camera.setYaw(camera.getYaw() + 0.01f);
+		renderer.startRenderingWithCamera(camera);
+		renderer.setTint(kTint);
+		int elements = scene.render(renderer, snapshot, 0.5f);
+		renderer.endRendering();
+		snapshots.release(snapshot);
+		
+		profiler.record(FrameProfiler.Phase.Render, frameStart);
+		stats.frameCompleted(elements);
+		return elements;
+	}
+}